@@ -17,7 +17,8 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({ ArtifactRepositoryTest.class, MetadataRepositoryTest.class, InstallTest.class,
 	MirrorTest.class, FedoraBundleRepositoryTest.class, InstallerTest.class,
-	CompoundBundleRepositoryTest.class, EclipseSystemLayoutTest.class })
+	CompoundBundleRepositoryTest.class, EclipseSystemLayoutTest.class,
+	CapabilityIndexTest.class, InMemoryRepositoryTest.class })
 public class AllTests {
 
 }
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IProvidedCapability;
+import org.eclipse.equinox.p2.metadata.IRequirement;
+import org.eclipse.equinox.p2.metadata.MetadataFactory;
+import org.eclipse.equinox.p2.metadata.MetadataFactory.InstallableUnitDescription;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.metadata.VersionRange;
+import org.eclipse.equinox.p2.metadata.expression.ExpressionUtil;
+import org.fedoraproject.p2.CapabilityIndex;
+import org.junit.Test;
+
+public class CapabilityIndexTest {
+
+	private static final String NAMESPACE = "java.package";
+
+	private static IInstallableUnit createUnit(String id, String version,
+			String... packageVersions) {
+		InstallableUnitDescription desc = new InstallableUnitDescription();
+		desc.setId(id);
+		desc.setVersion(Version.create(version));
+		List<IProvidedCapability> caps = new ArrayList<>();
+		caps.add(MetadataFactory.createProvidedCapability(
+				IInstallableUnit.NAMESPACE_IU_ID, id, Version.create(version)));
+		for (String packageVersion : packageVersions)
+			caps.add(MetadataFactory.createProvidedCapability(NAMESPACE,
+					"org.example", Version.create(packageVersion)));
+		desc.setCapabilities(caps.toArray(new IProvidedCapability[0]));
+		return MetadataFactory.createInstallableUnit(desc);
+	}
+
+	private static IRequirement createRequirement(String range) {
+		return MetadataFactory.createRequirement(NAMESPACE, "org.example",
+				range == null ? null : new VersionRange(range), null, false,
+				false);
+	}
+
+	@Test
+	public void matchesExpressionEvaluatorTest() {
+		List<IInstallableUnit> units = Arrays.asList(
+				createUnit("a", "1.0.0", "1.0.0"),
+				createUnit("b", "2.0.0", "1.5.0", "3.0.0"),
+				createUnit("c", "3.0.0", "2.0.0"),
+				createUnit("d", "4.0.0"));
+		CapabilityIndex index = new CapabilityIndex(units);
+
+		List<IRequirement> requirements = new ArrayList<>();
+		for (String range : new String[] { null, "0.0.0", "[1.5.0,1.5.0]",
+				"1.5.0", "[1.0.0,2.0.0]", "[1.0.0,2.0.0)", "(1.0.0,2.0.0]",
+				"(1.0.0,2.0.0)", "(1.0.0,4.0.0)", "[5.0.0,6.0.0)" })
+			requirements.add(createRequirement(range));
+		requirements.add(MetadataFactory.createRequirement(ExpressionUtil
+				.getFactory().matchExpression(ExpressionUtil.parse("id == $0"),
+						"c"), null, 0, 1, true));
+
+		for (IRequirement req : requirements) {
+			List<IInstallableUnit> expected = units.stream()
+					.filter(req::isMatch)
+					.sorted(CapabilityIndex.PROVIDER_ORDER)
+					.collect(Collectors.toList());
+			assertEquals(req.toString(), expected, index.getProviders(req));
+		}
+	}
+}
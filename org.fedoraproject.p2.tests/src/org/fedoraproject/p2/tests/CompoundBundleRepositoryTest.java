@@ -14,6 +14,7 @@ import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -118,7 +119,8 @@ public class CompoundBundleRepositoryTest extends RepositoryTest {
 		assertTrue(repo.getExternalUnits().isEmpty());
 	}
 
-	private void performTest(String... sclNames) throws Exception {
+	private IFedoraBundleRepository createRepository(String... sclNames)
+			throws Exception {
 		List<SCL> scls = new ArrayList<>(sclNames.length);
 		for (String name : sclNames) {
 			Path prefix = getTempDir().resolve(name);
@@ -129,7 +131,19 @@ public class CompoundBundleRepositoryTest extends RepositoryTest {
 			scls.add(new SCL(confPath));
 		}
 
-		IFedoraBundleRepository repo = new CompoundBundleRepository(scls);
+		return new CompoundBundleRepository(scls);
+	}
+
+	private static List<String> getIds(Iterable<IInstallableUnit> units) {
+		List<String> ids = new ArrayList<>();
+		for (IInstallableUnit unit : units) {
+			ids.add(unit.getId());
+		}
+		return ids;
+	}
+
+	private void performTest(String... sclNames) throws Exception {
+		IFedoraBundleRepository repo = createRepository(sclNames);
 		replay(visitor);
 		for (IInstallableUnit unit : repo.getPlatformUnits()) {
 			visitor.visitPlatformPlugin(unit.getId(), unit.getVersion()
@@ -204,4 +218,26 @@ public class CompoundBundleRepositoryTest extends RepositoryTest {
 		addExternalPlugin("java-common", "org.junit", "1.0.0", true);
 		performTest("devtoolset", "java-common");
 	}
+
+	// Bundles present both in a droplet and in an external location are
+	// ordered after bundles present in only one of them, within either tier
+	@Test
+	public void sharedUnitsOrderedLastTest() throws Exception {
+		addInternalPlugin("foo", "dropin.only", false);
+		Path shared = addPlugin("usr/share/eclipse/droplets/droplet-name/plugins",
+				"foo", "shared.internal", "1.0.0");
+		Path link = getTempDir().resolve("foo/usr/share/java/sub-directory")
+				.resolve(shared.getFileName());
+		Files.createDirectories(link.getParent());
+		Files.createSymbolicLink(link, shared);
+		addExternalPlugin("foo", "external.only", false);
+		addInternalPlugin("foo", "shared.external", false);
+		addExternalPlugin("foo", "shared.external", false);
+
+		IFedoraBundleRepository repo = createRepository("foo");
+		assertEquals(Arrays.asList("dropin.only", "shared.internal"),
+				getIds(repo.getInternalUnits()));
+		assertEquals(Arrays.asList("external.only", "shared.external"),
+				getIds(repo.getExternalUnits()));
+	}
 }
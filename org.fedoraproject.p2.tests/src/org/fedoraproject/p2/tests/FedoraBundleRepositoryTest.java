@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.fedoraproject.p2.tests;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -20,10 +21,15 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IRequirement;
+import org.eclipse.equinox.p2.metadata.MetadataFactory;
+import org.eclipse.equinox.p2.metadata.VersionRange;
 
+import org.fedoraproject.p2.BundleTier;
 import org.fedoraproject.p2.EclipseSystemLayout;
 import org.fedoraproject.p2.FedoraBundleRepository;
 import org.fedoraproject.p2.P2Utils;
+import org.fedoraproject.p2.Providers;
 import org.fedoraproject.p2.SCL;
 
 import org.junit.Test;
@@ -82,6 +88,27 @@ public class FedoraBundleRepositoryTest extends RepositoryTest {
 		}
 	}
 
+	@Test
+	public void providerLookupTest () {
+		SCL scl = new SCL(Paths.get("/etc/java/eclipse.conf"));
+		FedoraBundleRepository rep = new FedoraBundleRepository(scl);
+
+		for (IInstallableUnit u : rep.getPlatformUnits()) {
+			IRequirement req = MetadataFactory.createRequirement(
+					IInstallableUnit.NAMESPACE_IU_ID, u.getId(),
+					new VersionRange(u.getVersion(), true, u.getVersion(), true),
+					null, false, false);
+			Providers providers = rep.findProviders(req);
+			assertEquals(BundleTier.PLATFORM, providers.getTier());
+			assertTrue(providers.getUnits().contains(u));
+		}
+
+		IRequirement missing = MetadataFactory.createRequirement(
+				IInstallableUnit.NAMESPACE_IU_ID, "org.fedoraproject.p2.missing",
+				VersionRange.emptyRange, null, false, false);
+		assertEquals(null, rep.findProviders(missing));
+	}
+
 	@Test
 	public void userDefinedLocationsTest () {
 		System.setProperty("fedora.p2.repos", "/tmp/notexist/,/usr/share/java/,/usr/lib/");
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.MetadataFactory;
+import org.eclipse.equinox.p2.metadata.MetadataFactory.InstallableUnitDescription;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.repository.artifact.ArtifactDescriptorQuery;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactDescriptor;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.fedoraproject.p2.P2Utils;
+import org.fedoraproject.p2.installer.impl.Director;
+import org.fedoraproject.p2.installer.impl.Repository;
+import org.junit.Test;
+
+public class InMemoryRepositoryTest extends RepositoryTest {
+
+	private static IInstallableUnit createUnit(String id) {
+		InstallableUnitDescription desc = new InstallableUnitDescription();
+		desc.setId(id);
+		desc.setVersion(Version.create("1.0.0"));
+		return MetadataFactory.createInstallableUnit(desc);
+	}
+
+	@Test
+	public void metadataRepositoryTest() throws Exception {
+		Repository repo = Repository.createInMemory();
+		assertNull(repo.getLocation());
+		IMetadataRepository metadataRepo = repo.getMetadataRepository();
+		assertTrue(metadataRepo.isModifiable());
+		assertTrue(repo.getAllUnits().isEmpty());
+
+		IInstallableUnit foo = createUnit("foo");
+		IInstallableUnit bar = createUnit("bar");
+		metadataRepo.addInstallableUnits(Arrays.asList(foo, bar));
+		assertEquals(2, repo.getAllUnits().size());
+		assertTrue(repo.getAllUnits().contains(foo));
+		assertTrue(repo.getAllUnits().contains(bar));
+
+		assertTrue(metadataRepo.removeInstallableUnits(Collections
+				.singleton(foo)));
+		assertEquals(Collections.singleton(bar), repo.getAllUnits());
+
+		// Repositories are independent of each other
+		assertTrue(Repository.createInMemory().getAllUnits().isEmpty());
+	}
+
+	@Test
+	public void artifactRepositoryTest() throws Exception {
+		IArtifactRepository artifactRepo = Repository.createInMemory()
+				.getArtifactRepository();
+		assertTrue(artifactRepo.isModifiable());
+		IArtifactKey key = artifactRepo.createArtifactKey("osgi.bundle", "foo",
+				Version.create("1.0.0"));
+		IArtifactDescriptor descriptor = artifactRepo
+				.createArtifactDescriptor(key);
+		assertFalse(artifactRepo.contains(key));
+		assertEquals(0, artifactRepo.getArtifactDescriptors(key).length);
+
+		artifactRepo.addDescriptor(descriptor, null);
+		assertTrue(artifactRepo.contains(key));
+		assertTrue(artifactRepo.contains(descriptor));
+		assertArrayEquals(new IArtifactDescriptor[] { descriptor },
+				artifactRepo.getArtifactDescriptors(key));
+		assertEquals(Collections.singleton(descriptor), artifactRepo
+				.descriptorQueryable()
+				.query(ArtifactDescriptorQuery.ALL_DESCRIPTORS, null)
+				.toUnmodifiableSet());
+
+		artifactRepo.removeDescriptor(key, null);
+		assertFalse(artifactRepo.contains(key));
+	}
+
+	// Written content is discarded, but the descriptor is recorded
+	@Test
+	public void artifactContentNotStoredTest() throws Exception {
+		IArtifactRepository artifactRepo = Repository.createInMemory()
+				.getArtifactRepository();
+		IArtifactKey key = artifactRepo.createArtifactKey("osgi.bundle", "foo",
+				Version.create("1.0.0"));
+		IArtifactDescriptor descriptor = artifactRepo
+				.createArtifactDescriptor(key);
+		try (OutputStream stream = artifactRepo.getOutputStream(descriptor)) {
+			stream.write(new byte[2 << 20]);
+		}
+		assertTrue(artifactRepo.contains(key));
+
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		assertFalse(artifactRepo.getArtifact(descriptor, content, null).isOK());
+		assertEquals(0, content.size());
+
+		artifactRepo.removeAll(null);
+		assertFalse(artifactRepo.contains(key));
+	}
+
+	// Publishing indexes artifacts of all published units
+	@Test
+	public void publishTest() throws Exception {
+		Path bundle = getTempDir().resolve("foo_1.0.0.jar");
+		new Plugin("foo", "1.0.0").writeBundle(bundle);
+		Repository repo = Repository.createInMemory();
+		Director.publish(repo, Collections.singleton(bundle), null);
+
+		Set<IInstallableUnit> units = repo.getAllUnits();
+		assertEquals(1, units.size());
+		IInstallableUnit unit = units.iterator().next();
+		assertEquals("foo", unit.getId());
+		assertEquals(bundle, P2Utils.getPath(unit));
+		assertEquals(1, unit.getArtifacts().size());
+		for (IArtifactKey key : unit.getArtifacts())
+			assertEquals(1, repo.getArtifactRepository()
+					.getArtifactDescriptors(key).length);
+	}
+}
@@ -14,8 +14,10 @@ import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -24,12 +26,20 @@ import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Ignore;
@@ -37,9 +47,11 @@ import org.junit.Test;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
 import org.easymock.IExpectationSetters;
+import org.fedoraproject.p2.P2Utils;
 import org.fedoraproject.p2.SCL;
 import org.fedoraproject.p2.installer.Dropin;
 import org.fedoraproject.p2.installer.EclipseArtifact;
+import org.fedoraproject.p2.installer.EclipseInstallationOutcome;
 import org.fedoraproject.p2.installer.EclipseInstallationRequest;
 import org.fedoraproject.p2.installer.EclipseInstallationResult;
 import org.fedoraproject.p2.installer.EclipseInstaller;
@@ -193,7 +205,7 @@ public class InstallerTest extends RepositoryTest {
 		return addFeature(id, ver, internalFeatures);
 	}
 
-	public void performTest() throws Exception {
+	public EclipseInstallationResult performTest() throws Exception {
 		boolean visitArchful = false;
 		for (Plugin plugin : collectPlugins(reactorPlugins, reactor)) {
 			EclipseArtifact artifact = new EclipseArtifact(plugin.getPath(),
@@ -231,6 +243,7 @@ public class InstallerTest extends RepositoryTest {
 				scl.getNoarchDropletDir())));
 		visitResult(result);
 		verify(visitor);
+		return result;
 	}
 
 	private Set<Plugin> collectPlugins(Map<String, List<Plugin>> map, Path dir)
@@ -421,6 +434,90 @@ public class InstallerTest extends RepositoryTest {
 				.relativize(scl.getNoarchDropletDir())
 				.resolve("main/plugins/foo_1.0.0"));
 		assertTrue(Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS));
+		assertTrue(Files.isRegularFile(dir.resolve("META-INF/MANIFEST.MF")));
+	}
+
+	// fragment.info must list all installed and symlinked bundles, but no
+	// features
+	@Test
+	public void fragmentInfoTest() throws Exception {
+		addCommonsBundles();
+		addReactorPlugin("foo").requireBundle("org.apache.commons.io");
+		addReactorPlugin("bar").addMfEntry("Eclipse-BundleShape", "dir");
+		addReactorFeature("baz");
+		expectPlugin("foo");
+		expectPlugin("bar");
+		expectFeature("baz");
+		expectSymlink("org.apache.commons.io");
+		expectRequires("org.apache.commons.io");
+		expectProvides("foo");
+		expectProvides("bar");
+		expectProvides("baz");
+		performTest();
+
+		Map<String, String> expected = new LinkedHashMap<>();
+		expected.put("bar", "1.0.0 plugins/bar_1.0.0");
+		expected.put("foo", "1.0.0 plugins/foo_1.0.0.jar");
+		expected.put("org.apache.commons.io",
+				"1.0.0 plugins/org.apache.commons.io_1.0.0.jar");
+		assertEquals(expected, readFragmentInfo("main"));
+	}
+
+	private Map<String, String> readFragmentInfo(String droplet)
+			throws Exception {
+		return readFragmentInfo(buildRoot, droplet);
+	}
+
+	// Bundles listed in fragment.info of given droplet, sorted by ID
+	private Map<String, String> readFragmentInfo(Path root, String droplet)
+			throws Exception {
+		Path file = root.resolve(Paths.get("/")
+				.relativize(scl.getNoarchDropletDir())
+				.resolve(droplet).resolve("fragment.info"));
+		Map<String, String> bundles = new TreeMap<>();
+		for (String line : Files.readAllLines(file)) {
+			if (line.startsWith("#"))
+				continue;
+			String[] fields = line.split(",");
+			bundles.put(fields[0],
+					fields[1] + " " + fields[2].replaceAll("/$", ""));
+		}
+		return bundles;
+	}
+
+	// Installing into a buildroot which already contains the same droplets
+	// must overwrite them.
+	@Test
+	public void reinstallationTest() throws Exception {
+		addCommonsBundles();
+		addReactorPlugin("foo").requireBundle("org.apache.commons.io");
+		addReactorPlugin("bar").addMfEntry("Eclipse-BundleShape", "dir");
+		addReactorFeature("baz");
+		expectPlugin("foo");
+		expectPlugin("bar");
+		expectFeature("baz");
+		expectSymlink("org.apache.commons.io");
+		expectRequires("org.apache.commons.io");
+		expectProvides("foo");
+		expectProvides("bar");
+		expectProvides("baz");
+		EclipseInstallationResult result = performTest();
+		List<String> tree = listTree(buildRoot);
+		List<String> provides = listProvides(result);
+		Map<String, String> fragmentInfo = readFragmentInfo("main");
+		// Installed bundles must not share storage with build output
+		Path installed = buildRoot.resolve(Paths.get("/")
+				.relativize(scl.getNoarchDropletDir())
+				.resolve("main/plugins/foo_1.0.0.jar"));
+		assertFalse(Files.isSameFile(installed, reactorPlugins.get("foo")
+				.get(0).getPath()));
+
+		EclipseInstallationResult secondResult = installer
+				.performInstallation(copyRequest(buildRoot));
+
+		assertEquals(tree, listTree(buildRoot));
+		assertEquals(provides, listProvides(secondResult));
+		assertEquals(fragmentInfo, readFragmentInfo("main"));
 	}
 
 	// Two plugins manually assigned to subpackages, third implicitly installed
@@ -559,6 +656,29 @@ public class InstallerTest extends RepositoryTest {
 		performTest();
 	}
 
+	// Three independent plugins require a chain of external bundles, each of
+	// which requires the next two. The whole chain must be symlinked next to
+	// each plugin.
+	@Test
+	public void indepPluginsCommonDepChain() throws Exception {
+		int length = 30;
+		for (int i = 0; i < length; i++) {
+			Plugin ext = addExternalPlugin("ext" + i);
+			for (int j = i + 1; j < Math.min(i + 3, length); j++)
+				ext.requireBundle("ext" + j);
+		}
+		for (int i = 1; i <= 3; i++) {
+			addReactorPlugin("P" + i).requireBundle("ext0")
+					.assignToTargetPackage("pkg" + i);
+			expectPlugin("pkg" + i, "P" + i);
+			expectProvides("pkg" + i, "P" + i);
+			expectRequires("pkg" + i, "ext0");
+			for (int j = 0; j < length; j++)
+				expectSymlink("pkg" + i, "ext" + j);
+		}
+		performTest();
+	}
+
 	// FIXME this doesn't work currently
 	@Ignore
 	// Two plugins A and B, where B requires A. Both require junit. Junit and
@@ -648,6 +768,415 @@ public class InstallerTest extends RepositoryTest {
 		performTest();
 	}
 
+	// Parallel dependency resolution must produce the same result as
+	// sequential one.
+	@Test
+	public void parallelResolutionTest() throws Exception {
+		request.setParallelResolution(true);
+		trickyExpandVirtualPackagesLogic();
+	}
+
+	// Installation restored from result cache must be the same as the
+	// original one, both in the buildroot and in the result.
+	@Test
+	public void resultCacheTest() throws Exception {
+		Path cacheDir = getTempDir().resolve("cache");
+		request.setCacheDir(cacheDir);
+		request.setCacheResults(true);
+		addCommonsBundles();
+		addReactorPlugin("my-plugin").requireBundle("org.apache.commons.io");
+		expectPlugin("my-plugin");
+		expectSymlink("org.apache.commons.io");
+		expectRequires("org.apache.commons.io");
+		expectProvides("my-plugin");
+		EclipseInstallationResult result = performTest();
+		List<String> tree = listTree(buildRoot);
+		List<String> provides = listProvides(result);
+
+		EclipseInstallationResult cachedResult = performAgain(false);
+
+		assertEquals(tree, listTree(buildRoot));
+		assertEquals(provides, listProvides(cachedResult));
+		try (Stream<Path> entries = Files.list(cacheDir.resolve("results"))) {
+			assertEquals(1, entries.count());
+		}
+	}
+
+	// Resolutions cached for one set of system bundles must not be used nor
+	// removed once the system changes.
+	@Test
+	public void resolutionCacheTest() throws Exception {
+		Path cacheDir = getTempDir().resolve("cache");
+		request.setCacheDir(cacheDir);
+		addInternalPlugin("Int");
+		addReactorPlugin("React").requireBundle("Int");
+		expectPlugin("React");
+		expectRequires("Int");
+		expectProvides("React");
+		EclipseInstallationResult result = performTest();
+		assertTrue(listProvides(result).toString().contains("Int"));
+
+		// Platform requirements aren't generated
+		Files.move(scl.getNoarchDropletDir()
+				.resolve("foo/plugins/Int_1.0.0.jar"), scl.getEclipseRoot()
+				.resolve("plugins/Int_1.0.0.jar"));
+		EclipseInstallationResult changedResult = performAgain(false);
+
+		assertFalse(listProvides(changedResult).toString().contains("Int"));
+		try (Stream<Path> entries = Files.list(cacheDir.resolve("resolution"))) {
+			assertEquals(2, entries.count());
+		}
+	}
+
+	// Installation of reactor units restored from publish cache must be the
+	// same as the original one.
+	@Test
+	public void publishCacheTest() throws Exception {
+		Path cacheDir = getTempDir().resolve("cache");
+		request.setCacheDir(cacheDir);
+		addCommonsBundles();
+		addReactorPlugin("my-plugin").requireBundle("org.apache.commons.io");
+		addReactorFeature("my-feature");
+		expectPlugin("my-plugin");
+		expectFeature("my-feature");
+		expectSymlink("org.apache.commons.io");
+		expectRequires("org.apache.commons.io");
+		expectProvides("my-plugin");
+		expectProvides("my-feature");
+		EclipseInstallationResult result = performTest();
+		List<String> tree = listTree(buildRoot);
+		List<String> provides = listProvides(result);
+
+		EclipseInstallationResult cachedResult = performAgain(false);
+
+		assertEquals(tree, listTree(buildRoot));
+		assertEquals(provides, listProvides(cachedResult));
+		try (Stream<Path> entries = Files.list(cacheDir.resolve("publish"))) {
+			assertEquals(2, entries.count());
+		}
+	}
+
+	// Units restored from publish cache must be in the same order as freshly
+	// published ones, also when only some of them are cached.
+	@Test
+	public void publishCacheOrderTest() throws Exception {
+		Path cacheDir = getTempDir().resolve("cache");
+		request.setCacheDir(cacheDir);
+		for (int i = 0; i < 6; i++) {
+			addReactorPlugin("plugin" + i);
+			expectPlugin("plugin" + i);
+			expectProvides("plugin" + i);
+		}
+		EclipseInstallationResult result = performTest();
+		List<String> order = listProvideIds(result);
+
+		List<Path> entries;
+		try (Stream<Path> stream = Files.list(cacheDir.resolve("publish"))) {
+			entries = stream.sorted().collect(Collectors.toList());
+		}
+		assertEquals(6, entries.size());
+		for (int i = 0; i < entries.size(); i += 2)
+			P2Utils.delete(entries.get(i).toFile());
+		assertEquals(order, listProvideIds(performAgain(false)));
+		assertEquals(order, listProvideIds(performAgain(false)));
+	}
+
+	// IDs of all provides, in the order of the result
+	private List<String> listProvideIds(EclipseInstallationResult result) {
+		List<String> ids = new ArrayList<>();
+		for (Dropin dropin : result.getDropins())
+			for (EclipseArtifact provide : dropin.getOsgiProvides())
+				ids.add(provide.getId());
+		return ids;
+	}
+
+	// Dry run must resolve the same dependencies as real installation.
+	@Test
+	public void dryRunTest() throws Exception {
+		addCommonsBundles();
+		addReactorPlugin("my-plugin").requireBundle("org.apache.commons.io");
+		addReactorPlugin("other-plugin").importPackage("org.apache.commons.lang")
+				.assignToTargetPackage("sub");
+		addReactorFeature("my-feature");
+		expectPlugin("my-plugin");
+		expectPlugin("sub", "other-plugin");
+		expectFeature("my-feature");
+		expectSymlink("org.apache.commons.io");
+		expectSymlink("sub", "org.apache.commons.lang");
+		expectRequires("org.apache.commons.io");
+		expectRequires("sub", "org.apache.commons.lang");
+		expectProvides("my-plugin");
+		expectProvides("sub", "other-plugin");
+		expectProvides("my-feature");
+		EclipseInstallationResult result = performTest();
+		List<String> provides = listProvides(result);
+
+		EclipseInstallationResult dryRunResult = performAgain(true);
+
+		assertEquals(provides, listProvides(dryRunResult));
+		assertEquals(Collections.singletonList(""), listTree(buildRoot));
+	}
+
+	// Dropins of different target packages are materialized concurrently,
+	// which must yield the same tree and fragment.info files as writing them
+	// one by one would.
+	@Test
+	public void concurrentMaterializationTest() throws Exception {
+		addCommonsBundles();
+		addReactorPlugin("my-plugin").requireBundle("org.apache.commons.io");
+		expectPlugin("my-plugin");
+		expectSymlink("org.apache.commons.io");
+		expectRequires("org.apache.commons.io");
+		expectProvides("my-plugin");
+		Map<String, Map<String, String>> fragmentInfos = new TreeMap<>();
+		fragmentInfos.put("main", new TreeMap<>());
+		fragmentInfos.get("main").put("my-plugin",
+				"1.0.0 plugins/my-plugin_1.0.0.jar");
+		fragmentInfos.get("main").put("org.apache.commons.io",
+				"1.0.0 plugins/org.apache.commons.io_1.0.0.jar");
+		for (int i = 0; i < 8; i++) {
+			String sub = "sub" + i;
+			addReactorPlugin("jar" + i).assignToTargetPackage(sub);
+			addReactorPlugin("dir" + i).addMfEntry("Eclipse-BundleShape", "dir")
+					.assignToTargetPackage(sub);
+			expectPlugin(sub, "jar" + i);
+			expectPlugin(sub, "dir" + i);
+			expectProvides(sub, "jar" + i);
+			expectProvides(sub, "dir" + i);
+			Map<String, String> fragmentInfo = new TreeMap<>();
+			fragmentInfo.put("dir" + i, "1.0.0 plugins/dir" + i + "_1.0.0");
+			fragmentInfo.put("jar" + i, "1.0.0 plugins/jar" + i + "_1.0.0.jar");
+			fragmentInfos.put(sub, fragmentInfo);
+		}
+		EclipseInstallationResult result = performTest();
+		List<String> tree = listTree(buildRoot);
+		List<String> provides = listProvides(result);
+		for (Entry<String, Map<String, String>> entry : fragmentInfos
+				.entrySet())
+			assertEquals(entry.getValue(), readFragmentInfo(entry.getKey()));
+
+		for (int i = 0; i < 4; i++) {
+			Path root = getTempDir().resolve("buildroot" + i);
+			Files.createDirectory(root);
+			assertEquals(provides, listProvides(installer
+					.performInstallation(copyRequest(root))));
+			assertEquals(tree, listTree(root));
+			for (Entry<String, Map<String, String>> entry : fragmentInfos
+					.entrySet())
+				assertEquals(entry.getValue(),
+						readFragmentInfo(root, entry.getKey()));
+		}
+	}
+
+	// Concurrent installations must not interfere with each other.
+	@Test
+	public void concurrentInstallationTest() throws Exception {
+		addCommonsBundles();
+		addJunitBundles();
+		addReactorPlugin("my-plugin").requireBundle("org.apache.commons.io");
+		addReactorPlugin("my.tests").importPackage("junit.framework")
+				.assignToTargetPackage("tests");
+		expectPlugin("my-plugin");
+		expectPlugin("tests", "my.tests");
+		expectSymlink("org.apache.commons.io");
+		expectSymlink("tests", "org.junit");
+		expectSymlink("tests", "org.hamcrest.core");
+		expectRequires("org.apache.commons.io");
+		expectRequires("tests", "org.junit");
+		expectProvides("my-plugin");
+		expectProvides("tests", "my.tests");
+		EclipseInstallationResult result = performTest();
+		List<String> tree = listTree(buildRoot);
+		List<String> provides = listProvides(result);
+
+		List<Path> roots = new ArrayList<>();
+		List<Future<EclipseInstallationResult>> futures = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int i = 0; i < 8; i++) {
+				Path root = getTempDir().resolve("buildroot" + i);
+				Files.createDirectory(root);
+				roots.add(root);
+				EclipseInstallationRequest copy = copyRequest(root);
+				futures.add(executor.submit(() -> installer
+						.performInstallation(copy)));
+			}
+			for (int i = 0; i < roots.size(); i++) {
+				assertEquals(provides, listProvides(futures.get(i).get()));
+				assertEquals(tree, listTree(roots.get(i)));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	// Report must list all phases of installation and each written dropin.
+	@Test
+	public void reportTest() throws Exception {
+		Path reportFile = getTempDir().resolve("report.json");
+		request.setReportFile(reportFile);
+		addReactorPlugin("foo").assignToTargetPackage("sub");
+		addReactorPlugin("bar");
+		expectPlugin("sub", "foo");
+		expectPlugin("bar");
+		expectProvides("sub", "foo");
+		expectProvides("bar");
+		performTest();
+
+		String report = new String(Files.readAllBytes(reportFile), "UTF-8");
+		for (String phase : new String[] { "platform indexing",
+				"reactor publish", "metapackage creation",
+				"dependency resolution", "SCC detection", "splitting",
+				"virtual expansion", "dropin layout",
+				"dropin materialization" })
+			assertTrue(phase, report.contains("\"name\": \"" + phase + "\""));
+		assertTrue(report.contains("/sub\""));
+		assertTrue(report.contains("/main\""));
+	}
+
+	// Dropins and external locations are indexed only when needed, and the
+	// report lists that as part of the phase which needed it.
+	@Test
+	public void lazyIndexingReportTest() throws Exception {
+		Path reportFile = getTempDir().resolve("report.json");
+		request.setReportFile(reportFile);
+		addCommonsBundles();
+		addReactorPlugin("foo").requireBundle("org.apache.commons.io");
+		expectPlugin("foo");
+		expectSymlink("org.apache.commons.io");
+		expectRequires("org.apache.commons.io");
+		expectProvides("foo");
+		performTest();
+
+		String report = new String(Files.readAllBytes(reportFile), "UTF-8");
+		assertTrue(report.contains("\"name\": \"dropin and external indexing\""));
+		assertTrue(report.contains("\"within\": \"dependency resolution\""));
+	}
+
+	// Failure of one installation in a batch must not affect the others.
+	@Test
+	public void batchInstallationTest() throws Exception {
+		addCommonsBundles();
+		addReactorPlugin("my-plugin").requireBundle("org.apache.commons.io");
+		expectPlugin("my-plugin");
+		expectSymlink("org.apache.commons.io");
+		expectRequires("org.apache.commons.io");
+		expectProvides("my-plugin");
+		EclipseInstallationResult result = performTest();
+		List<String> tree = listTree(buildRoot);
+		List<String> provides = listProvides(result);
+
+		Path root1 = getTempDir().resolve("buildroot1");
+		Path root2 = getTempDir().resolve("buildroot2");
+		Files.createDirectory(root1);
+		Files.createDirectory(root2);
+		Path notPlugin = getTempDir().resolve("not-a-plugin");
+		Files.createDirectory(notPlugin);
+		Files.createFile(notPlugin.resolve("file.txt"));
+		EclipseInstallationRequest invalid = copyRequest(getTempDir()
+				.resolve("buildroot3"));
+		invalid.addArtifact(new EclipseArtifact(notPlugin, false, false));
+
+		List<EclipseInstallationOutcome> outcomes = installer
+				.performInstallations(Arrays.asList(copyRequest(root1),
+						invalid, copyRequest(root2)));
+		assertEquals(3, outcomes.size());
+		assertTrue(outcomes.get(0).isSuccessful());
+		assertEquals(provides, listProvides(outcomes.get(0).getResult()));
+		assertEquals(tree, listTree(root1));
+		assertFalse(outcomes.get(1).isSuccessful());
+		assertNotNull(outcomes.get(1).getFailure());
+		assertSame(invalid, outcomes.get(1).getRequest());
+		assertTrue(outcomes.get(2).isSuccessful());
+		assertEquals(provides, listProvides(outcomes.get(2).getResult()));
+		assertEquals(tree, listTree(root2));
+	}
+
+	// Caching installer must index system bundles again once they change.
+	@Test
+	public void cachingInstallerTest() throws Exception {
+		addInternalPlugin("Int");
+		addReactorPlugin("React").requireBundle("Int");
+		expectPlugin("React");
+		expectRequires("Int");
+		expectProvides("React");
+		EclipseInstallationResult result = performTest();
+		List<String> provides = listProvides(result);
+
+		EclipseInstaller cachingInstaller = installer.createCachingInstaller();
+		List<List<String>> results = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			Path root = getTempDir().resolve("buildroot" + i);
+			Files.createDirectory(root);
+			if (i == 2) {
+				// Platform requirements aren't generated
+				Files.move(scl.getNoarchDropletDir()
+						.resolve("foo/plugins/Int_1.0.0.jar"), scl
+						.getEclipseRoot().resolve("plugins/Int_1.0.0.jar"));
+			}
+			results.add(listProvides(cachingInstaller
+					.performInstallation(copyRequest(root))));
+		}
+		assertEquals(provides, results.get(0));
+		assertEquals(results.get(0), results.get(1));
+		assertTrue(results.get(1).toString().contains("Int"));
+		assertFalse(results.get(2).toString().contains("Int"));
+	}
+
+	// Install the same artifacts again, into an empty buildroot
+	private EclipseInstallationResult performAgain(boolean dryRun)
+			throws Exception {
+		P2Utils.delete(buildRoot.toFile());
+		Files.createDirectory(buildRoot);
+		return installer.performInstallation(copyRequest(dryRun ? null
+				: buildRoot));
+	}
+
+	// Request for the same artifacts as the current one, before installation
+	private EclipseInstallationRequest copyRequest(Path root) {
+		EclipseInstallationRequest copy = new EclipseInstallationRequest();
+		copy.setBuildRoot(root);
+		copy.setMainPackageId(request.getMainPackageId());
+		copy.setCacheDir(request.getCacheDir());
+		copy.setCacheResults(request.isCacheResults());
+		for (Path sclConf : request.getConfigFiles())
+			copy.addConfigFile(sclConf);
+		for (EclipseArtifact artifact : request.getArtifacts()) {
+			EclipseArtifact artifactCopy = new EclipseArtifact(
+					artifact.getPath(), artifact.isFeature(),
+					artifact.isNative());
+			artifactCopy.setTargetPackage(artifact.getTargetPackage());
+			copy.addArtifact(artifactCopy);
+		}
+		return copy;
+	}
+
+	private List<String> listTree(Path dir) throws Exception {
+		List<String> tree = new ArrayList<>();
+		try (Stream<Path> paths = Files.walk(dir)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				String entry = dir.relativize(path).toString();
+				if (Files.isSymbolicLink(path))
+					entry += " -> " + Files.readSymbolicLink(path);
+				tree.add(entry);
+			}
+		}
+		Collections.sort(tree);
+		return tree;
+	}
+
+	private List<String> listProvides(EclipseInstallationResult result) {
+		List<String> provides = new ArrayList<>();
+		for (Dropin dropin : result.getDropins())
+			for (EclipseArtifact provide : dropin.getOsgiProvides())
+				provides.add(dropin.getId() + " " + dropin.getPath() + " "
+						+ provide.getId() + " " + provide.getVersion() + " "
+						+ provide.getInstalledPath() + " "
+						+ provide.getProperties());
+		Collections.sort(provides);
+		return provides;
+	}
+
 	// Unresolved dependencies shouldn't cause installation failure.
 	@Test
 	public void unresolvedDependencyTest() throws Exception {
@@ -955,6 +1484,21 @@ public class InstallerTest extends RepositoryTest {
 		assertFalse(Files.exists(plugins.resolve("org.lucene_5.0.0.jar"), LinkOption.NOFOLLOW_LINKS));
 	}
 
+	// Long cycles of external bundles must be merged into the dropin that
+	// requires them
+	@Test
+	public void longCycleInExternalPlugins() throws Exception {
+		int length = 200;
+		for (int i = 0; i < length; i++)
+			addExternalPlugin("ext" + i).requireBundle("ext" + (i + 1) % length);
+		addReactorPlugin("React").requireBundle("ext0");
+		expectPlugin("React");
+		expectProvides("React");
+		for (int i = 0; i < length; i++)
+			expectSymlink("ext" + i);
+		performTest();
+	}
+
 	@Test
 	// For now, cycles in reactor content shouldn't fail
 	public void cyclicDepsInReactorPlugins() throws Exception {
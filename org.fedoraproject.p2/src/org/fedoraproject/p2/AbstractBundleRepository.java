@@ -10,57 +10,138 @@
  *******************************************************************************/
 package org.fedoraproject.p2;
 
-import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IRequirement;
 
 /**
  * Abstract bundle repository that contains filtering functionality so that
  * duplicate bundles do not get returned from the
  * {@link IFedoraBundleRepository} interface. All bundle repository
  * implementations should extend this class and implement
- * {@link #getDropinsLocations()}.
+ * {@link #getDropinsLocations()} and {@link #loadInternalAndExternalUnits()}.
  */
 public abstract class AbstractBundleRepository implements
 		IFedoraBundleRepository {
 
-	protected Set<IInstallableUnit> platformUnits;
-	protected Set<IInstallableUnit> internalUnits;
-	protected Set<IInstallableUnit> externalUnits;
+	/**
+	 * Table of all units known to this repository. Units present in more than
+	 * one tier are represented by the instance that was interned first, so
+	 * implementations should intern platform units first and then set the
+	 * remaining tiers with {@link #setInternalAndExternalUnits}.
+	 */
+	protected final UnitTable unitTable = new UnitTable();
+	/**
+	 * Canonical paths resolved while building this repository, to be shared
+	 * with bundle indices created by implementations.
+	 */
+	final CanonicalPathCache canonicalPaths = new CanonicalPathCache();
+	protected UnitSet platformUnits;
+	protected UnitSet internalUnits;
+	protected UnitSet externalUnits;
+	/**
+	 * Units present in both internal and external tiers, not yet assigned to
+	 * either of them.
+	 */
+	private UnitSet commonUnits;
 	private boolean filtered = false;
+	private final Map<BundleTier, CapabilityIndex> capabilityIndices = new EnumMap<>(BundleTier.class);
 
-	private void filterUnits() {
+	/**
+	 * Populate {@link #internalUnits} and {@link #externalUnits} by calling
+	 * {@link #setInternalAndExternalUnits}. This is called at most once, when either tier is needed for the first time, so
+	 * that installations satisfied by the platform never pay for scanning
+	 * dropins and external bundle locations.
+	 */
+	protected abstract void loadInternalAndExternalUnits();
+
+	/**
+	 * Populate {@link #internalUnits} and {@link #externalUnits} from given
+	 * collections, excluding platform units.
+	 * <p>
+	 * {@link UnitSet} iterates in interning order, so units are interned such
+	 * that each tier keeps the order of its collection, except that units
+	 * present in both come last, in external order, just like they are
+	 * appended after filtering. Such units are represented by their external
+	 * instances. Collections may contain duplicates, only the first
+	 * occurrence counts.
+	 */
+	protected void setInternalAndExternalUnits(
+			Collection<IInstallableUnit> internal,
+			Collection<IInstallableUnit> external) {
+		// Intern external units first in a scratch table, so that identifiers
+		// follow external order, except for internal-only units, which follow
+		// internal order. Tiers are then split with bit set operations and
+		// interned again, tier by tier, in the order their identifiers give.
+		UnitTable scratch = new UnitTable();
+		UnitSet scratchExternal = new UnitSet(scratch);
+		scratchExternal.addAll(external);
+		UnitSet scratchInternal = new UnitSet(scratch);
+		scratchInternal.addAll(internal);
+
+		UnitSet scratchCommon = scratchExternal.copy();
+		scratchCommon.retainAll(scratchInternal);
+		scratchInternal.removeAll(scratchCommon);
+		scratchExternal.removeAll(scratchCommon);
+
+		internalUnits = internNonPlatform(scratchInternal);
+		externalUnits = internNonPlatform(scratchExternal);
+		commonUnits = internNonPlatform(scratchCommon);
+	}
+
+	private UnitSet internNonPlatform(UnitSet units) {
+		UnitSet set = new UnitSet(unitTable);
+		set.addAll(units);
+		set.removeAll(platformUnits);
+		return set;
+	}
+
+	private synchronized void filterUnits() {
 		if (!filtered) {
-			internalUnits = new LinkedHashSet<>(internalUnits);
-			externalUnits = new LinkedHashSet<>(externalUnits);
+			// Lazy indexing is reported as a step of whatever needed it
+			Runnable stepFinished = P2Utils
+					.startStep("dropin and external indexing");
+			try {
+				loadInternalAndExternalUnits();
 
-			Set<IInstallableUnit> commonUnits = new LinkedHashSet<>(
-					externalUnits);
-			commonUnits.retainAll(internalUnits);
+				if (commonUnits == null) {
+					// Tiers were set without setInternalAndExternalUnits
+					commonUnits = externalUnits.copy();
+					commonUnits.retainAll(internalUnits);
+					internalUnits.removeAll(commonUnits);
+					externalUnits.removeAll(commonUnits);
+				}
 
-			internalUnits.removeAll(commonUnits);
-			externalUnits.removeAll(commonUnits);
+				PathTrie dropinRoots = new PathTrie();
+				for (Path dropin : getDropinsLocations()) {
+					Path root = canonicalPaths.get(dropin);
+					dropinRoots.add(root != null ? root : dropin);
+				}
 
-			for (IInstallableUnit unit : commonUnits) {
-				try {
+				for (IInstallableUnit unit : commonUnits) {
 					Path path = P2Utils.getPath(unit);
 					if (path == null)
 						continue;
-					path = path.toRealPath();
-					for (Path dropin : getDropinsLocations()) {
-						if (path.startsWith(dropin))
-							internalUnits.add(unit);
-						else
-							externalUnits.add(unit);
-					}
-				} catch (IOException e) {
+					path = canonicalPaths.get(path);
+					if (path == null)
+						continue;
+					if (dropinRoots.containsPrefixOf(path))
+						internalUnits.add(unit);
+					else
+						externalUnits.add(unit);
 				}
+				commonUnits = null;
+				filtered = true;
+			} finally {
+				stepFinished.run();
 			}
-			filtered = true;
 		}
 	}
 
@@ -82,4 +163,31 @@ public abstract class AbstractBundleRepository implements
 		filterUnits();
 		return Collections.unmodifiableSet(externalUnits);
 	}
+
+	private Set<IInstallableUnit> getUnits(BundleTier tier) {
+		switch (tier) {
+		case PLATFORM:
+			return getPlatformUnits();
+		case INTERNAL:
+			return getInternalUnits();
+		default:
+			return getExternalUnits();
+		}
+	}
+
+	private synchronized CapabilityIndex getCapabilityIndex(BundleTier tier) {
+		return capabilityIndices.computeIfAbsent(tier,
+				t -> new CapabilityIndex(getUnits(t)));
+	}
+
+	@Override
+	public final Providers findProviders(IRequirement requirement) {
+		for (BundleTier tier : BundleTier.values()) {
+			List<IInstallableUnit> units = getCapabilityIndex(tier)
+					.getProviders(requirement);
+			if (!units.isEmpty())
+				return new Providers(tier, units);
+		}
+		return null;
+	}
 }
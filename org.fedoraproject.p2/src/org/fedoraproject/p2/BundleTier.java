@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+/**
+ * Tiers of system units, in order of precedence.
+ * 
+ * @see IFedoraBundleRepository
+ */
+public enum BundleTier {
+	PLATFORM, INTERNAL, EXTERNAL;
+
+	@Override
+	public String toString() {
+		return name().toLowerCase();
+	}
+}
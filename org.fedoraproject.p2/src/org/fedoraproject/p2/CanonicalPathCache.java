@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of canonical file system paths, so that each path is resolved with at
+ * most one {@link Path#toRealPath} call. Symbolic links may be retargeted
+ * when system packages are upgraded, so each cache lives only as long as the
+ * index that owns it.
+ */
+class CanonicalPathCache {
+
+	private final Map<Path, Path> cache = new ConcurrentHashMap<>();
+
+	/**
+	 * @return The canonical form of the given path, or {@code null} if the path
+	 *         cannot be resolved.
+	 */
+	Path get(Path path) {
+		Path realPath = cache.get(path);
+		if (realPath == null) {
+			try {
+				realPath = path.toRealPath();
+			} catch (IOException e) {
+				return null;
+			}
+			cache.put(path, realPath);
+		}
+		return realPath;
+	}
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.eclipse.equinox.internal.p2.metadata.IRequiredCapability;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IProvidedCapability;
+import org.eclipse.equinox.p2.metadata.IRequirement;
+
+/**
+ * An immutable index of installable units by the capabilities they provide,
+ * keyed by capability namespace and name. Providers of each capability are
+ * kept in {@link #PROVIDER_ORDER}.
+ */
+public class CapabilityIndex {
+
+	/**
+	 * Preferred order of providers: highest version first and, among units of
+	 * the same version, the one providing fewer capabilities first.
+	 */
+	public static final Comparator<IInstallableUnit> PROVIDER_ORDER = Comparator
+			.comparing(IInstallableUnit::getVersion).reversed()
+			.thenComparingInt(u -> u.getProvidedCapabilities().size());
+
+	private final Map<String, Map<String, List<IInstallableUnit>>> providers = new HashMap<>();
+
+	private final List<IInstallableUnit> units;
+
+	public CapabilityIndex(Collection<IInstallableUnit> units) {
+		this.units = new ArrayList<>(units);
+		this.units.sort(PROVIDER_ORDER);
+
+		for (IInstallableUnit unit : this.units) {
+			for (IProvidedCapability cap : unit.getProvidedCapabilities()) {
+				List<IInstallableUnit> list = providers
+						.computeIfAbsent(cap.getNamespace(), k -> new HashMap<>())
+						.computeIfAbsent(cap.getName(), k -> new ArrayList<>());
+				// The same unit may provide a capability in several versions
+				if (list.isEmpty() || list.get(list.size() - 1) != unit)
+					list.add(unit);
+			}
+		}
+	}
+
+	/**
+	 * @return Candidate units that may satisfy the given requirement, in
+	 *         {@link #PROVIDER_ORDER}. Requirements on a single named
+	 *         capability are answered from the index, any other requirement
+	 *         yields all units.
+	 */
+	List<IInstallableUnit> getCandidates(IRequirement requirement) {
+		if (requirement instanceof IRequiredCapability) {
+			IRequiredCapability capability = (IRequiredCapability) requirement;
+			Map<String, List<IInstallableUnit>> names = providers
+					.get(capability.getNamespace());
+			if (names == null)
+				return Collections.emptyList();
+			return names.getOrDefault(capability.getName(),
+					Collections.emptyList());
+		}
+		return units;
+	}
+
+	/**
+	 * @return All units satisfying the given requirement, in
+	 *         {@link #PROVIDER_ORDER}.
+	 */
+	public List<IInstallableUnit> getProviders(IRequirement requirement) {
+		Predicate<IInstallableUnit> matcher = CapabilityMatcher
+				.compile(requirement);
+		List<IInstallableUnit> result = new ArrayList<>();
+		for (IInstallableUnit unit : getCandidates(requirement)) {
+			if (matcher.test(unit))
+				result.add(unit);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.util.function.Predicate;
+
+import org.eclipse.equinox.internal.p2.metadata.RequiredCapability;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IProvidedCapability;
+import org.eclipse.equinox.p2.metadata.IRequirement;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.metadata.VersionRange;
+import org.eclipse.equinox.p2.metadata.expression.IMatchExpression;
+
+/**
+ * Matches units against requirements by comparing capability fields
+ * directly, without going through the p2 expression evaluator.
+ * <p>
+ * Only the predefined match expressions used by {@link RequiredCapability}
+ * (namespace and name with no version constraint, a strict version, an open
+ * or a closed version range) are compiled. Any other requirement is evaluated
+ * by its match expression.
+ */
+class CapabilityMatcher {
+	private CapabilityMatcher() {
+	}
+
+	public static Predicate<IInstallableUnit> compile(IRequirement requirement) {
+		IMatchExpression<IInstallableUnit> matches = requirement.getMatches();
+		if (!RequiredCapability.isVersionRangeRequirement(matches))
+			return matches::isMatch;
+
+		// Parameters are name, namespace and optionally version bounds
+		Object[] parameters = matches.getParameters();
+		String name = (String) parameters[0];
+		String namespace = (String) parameters[1];
+		Predicate<Version> versionMatch = compileVersionMatch(matches,
+				parameters.length);
+
+		return unit -> {
+			for (IProvidedCapability cap : unit.getProvidedCapabilities()) {
+				if (name.equals(cap.getName())
+						&& namespace.equals(cap.getNamespace())
+						&& versionMatch.test(cap.getVersion()))
+					return true;
+			}
+			return false;
+		};
+	}
+
+	private static Predicate<Version> compileVersionMatch(
+			IMatchExpression<IInstallableUnit> matches, int parameterCount) {
+		if (parameterCount == 2)
+			return version -> true;
+
+		if (RequiredCapability.isStrictVersionRequirement(matches)) {
+			Version exact = (Version) matches.getParameters()[2];
+			return exact::equals;
+		}
+
+		VersionRange range = RequiredCapability.extractRange(matches);
+		Version min = range.getMinimum();
+		boolean includeMin = range.getIncludeMinimum();
+		Predicate<Version> lower = includeMin ? v -> v.compareTo(min) >= 0
+				: v -> v.compareTo(min) > 0;
+		// Open ranges have no upper bound in their expression
+		if (parameterCount == 3)
+			return lower;
+
+		Version max = range.getMaximum();
+		boolean includeMax = range.getIncludeMaximum();
+		Predicate<Version> upper = includeMax ? v -> v.compareTo(max) <= 0
+				: v -> v.compareTo(max) < 0;
+		return lower.and(upper);
+	}
+}
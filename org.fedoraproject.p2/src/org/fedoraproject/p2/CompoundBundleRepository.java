@@ -17,6 +17,11 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * A compound bundle repository which consists of one or more layered bundle
  * repositories.
@@ -25,8 +30,12 @@ import java.util.Set;
  */
 public class CompoundBundleRepository extends AbstractBundleRepository {
 
+	private static final Logger logger = LoggerFactory.getLogger(CompoundBundleRepository.class);
+
 	private final List<FedoraBundleRepository> indices;
 
+	private final List<String> sclNames;
+
 	/**
      * Create a compound repository backed by file system locations at given
      * prefixes.
@@ -35,27 +44,48 @@ public class CompoundBundleRepository extends AbstractBundleRepository {
      *            ordered list of prefixes to use
      */
 	public CompoundBundleRepository(List<SCL> scls) {
-		indices = new ArrayList<>(scls.size());
+		// SCLs are indexed concurrently, but merged in priority order below
+		indices = new ArrayList<>(P2Utils.parallelMap(scls, scl -> {
+			long start = System.nanoTime();
+			FedoraBundleRepository index = new FedoraBundleRepository(scl);
+			logger.info("Indexed platform of {} in {} ms", describe(scl),
+					(System.nanoTime() - start) / 1000000);
+			return index;
+		}));
+		sclNames = new ArrayList<>(scls.size());
 		for (SCL scl : scls) {
-			indices.add(new FedoraBundleRepository(scl));
+			sclNames.add(describe(scl));
 		}
 
-		platformUnits = new LinkedHashSet<>();
+		platformUnits = new UnitSet(unitTable);
 		for (IFedoraBundleRepository index : indices) {
 			platformUnits.addAll(index.getPlatformUnits());
 		}
+	}
 
-		internalUnits = new LinkedHashSet<>();
-		for (IFedoraBundleRepository index : indices) {
-			internalUnits.addAll(index.getInternalUnits());
-		}
-		internalUnits.removeAll(platformUnits);
+	private static String describe(SCL scl) {
+		return scl.getSclName() != null ? "SCL " + scl.getSclName() : "system";
+	}
+
+	@Override
+	protected void loadInternalAndExternalUnits() {
+		// Resolve internal/external shadowing of each SCL concurrently
+		P2Utils.parallelMap(indices, index -> {
+			long start = System.nanoTime();
+			index.getInternalUnits();
+			logger.info("Indexed dropins and external bundles of {} in {} ms",
+					sclNames.get(indices.indexOf(index)),
+					(System.nanoTime() - start) / 1000000);
+			return index;
+		});
 
-		externalUnits = new LinkedHashSet<>();
+		List<IInstallableUnit> internal = new ArrayList<>();
+		List<IInstallableUnit> external = new ArrayList<>();
 		for (IFedoraBundleRepository index : indices) {
-			externalUnits.addAll(index.getExternalUnits());
+			internal.addAll(index.getInternalUnits());
+			external.addAll(index.getExternalUnits());
 		}
-		externalUnits.removeAll(platformUnits);
+		setInternalAndExternalUnits(internal, external);
 	}
 
 	@Override
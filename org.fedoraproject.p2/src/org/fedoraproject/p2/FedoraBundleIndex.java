@@ -12,6 +12,7 @@ package org.fedoraproject.p2;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Dictionary;
 import java.util.LinkedHashMap;
@@ -26,6 +27,8 @@ import org.eclipse.equinox.p2.publisher.eclipse.BundlesAction;
 import org.eclipse.equinox.p2.publisher.eclipse.Feature;
 import org.eclipse.equinox.p2.publisher.eclipse.FeaturesAction;
 import org.eclipse.osgi.util.ManifestElement;
+import org.fedoraproject.p2.jfr.Events;
+import org.fedoraproject.p2.jfr.ManifestParseEvent;
 import org.osgi.framework.BundleException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,9 +41,20 @@ public class FedoraBundleIndex {
 	private File root;
 	private Map <IArtifactKey, File> index;
 	private final Logger logger = LoggerFactory.getLogger(FedoraBundleIndex.class);
+	private final CanonicalPathCache canonicalPaths;
 
 	public FedoraBundleIndex (File root) {
+		this(root, new CanonicalPathCache());
+	}
+
+	/**
+	 * @param canonicalPaths
+	 *            cache of canonical paths shared with the bundle repository
+	 *            being built
+	 */
+	FedoraBundleIndex (File root, CanonicalPathCache canonicalPaths) {
 		this.root = root;
+		this.canonicalPaths = canonicalPaths;
 		index = new LinkedHashMap<> ();
 	}
 
@@ -104,7 +118,12 @@ public class FedoraBundleIndex {
 				gatherAllBundles(file);
 			} else if (file.getName().endsWith(".jar")) {
 					try {
+						ManifestParseEvent event = Events.AVAILABLE ? new ManifestParseEvent() : null;
+						if (event != null)
+							event.begin();
 						Dictionary<String, String> manifest = BundlesAction.loadManifest(file);
+						if (event != null)
+							event.commit(file);
 						if (manifest != null) {
 							String bsn = manifest.get("Bundle-SymbolicName");
 							if (bsn != null) {
@@ -126,7 +145,12 @@ public class FedoraBundleIndex {
 					&& file.getParentFile().getName().equals("META-INF")) {
 				try {
 					File bundleDir = file.getParentFile().getParentFile();
+					ManifestParseEvent event = Events.AVAILABLE ? new ManifestParseEvent() : null;
+					if (event != null)
+						event.begin();
 					Dictionary<String, String> manifest = BundlesAction.loadManifest(bundleDir);
+					if (event != null)
+						event.commit(file);
 					if (manifest != null && "dir".equals(manifest.get("Eclipse-BundleShape"))) {
 						String bsn = manifest.get("Bundle-SymbolicName");
 						if (bsn != null) {
@@ -147,10 +171,8 @@ public class FedoraBundleIndex {
 		boolean isSameFile = false;
 		File prev = index.put(key, file);
 		if (prev != null) {
-			try {
-				isSameFile = file.getCanonicalFile().equals(prev.getCanonicalFile());
-			} catch (IOException e) {
-			}
+			Path canonicalFile = canonicalPaths.get(file.toPath());
+			isSameFile = canonicalFile != null && canonicalFile.equals(canonicalPaths.get(prev.toPath()));
 			if (!isSameFile) {
 				logger.warn("Multiple artifacts detected for {}", key.toString());
 				logger.warn("{} and {} have the same ID and version.", prev.getAbsolutePath(), file.getAbsolutePath());
@@ -11,20 +11,22 @@
 package org.fedoraproject.p2;
 
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
-import org.eclipse.equinox.p2.core.ProvisionException;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.query.QueryUtil;
 import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
-import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
 
 /**
  * This acts as a front-end for all interactions/queries regarding the
@@ -32,56 +34,85 @@ import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
  */
 public class FedoraBundleRepository extends AbstractBundleRepository {
 
-	private Map<Path, IMetadataRepository> metaRepos;
+	private final String sclFragment;
+	private Map<Path, Set<IInstallableUnit>> locationUnits;
 	private Set<Path> dropinsLocations = new LinkedHashSet<>();
+	private Set<Path> externalLocations = new LinkedHashSet<>();
 
 	public FedoraBundleRepository(SCL scl) {
-		metaRepos = new LinkedHashMap<>();
+		sclFragment = scl.getSclName() != null ? "#" + scl.getSclName() : "";
+		locationUnits = new LinkedHashMap<>();
 
 		Set<Path> platformLocations = new LinkedHashSet<>();
-		Set<Path> externalLocations = new LinkedHashSet<>();
 		EclipseSystemLayout.initLocations(scl, platformLocations, dropinsLocations, externalLocations, true);
 
-		Set<Path> allLocations = new LinkedHashSet<>();
-		allLocations.addAll(platformLocations);
-		allLocations.addAll(dropinsLocations);
-		allLocations.addAll(externalLocations);
+		// Dropins and external locations are only scanned when needed
+		loadLocations(platformLocations);
+		platformUnits = new UnitSet(unitTable);
+		platformUnits.addAll(enumerateUnits(platformLocations));
+	}
+
+	@Override
+	protected void loadInternalAndExternalUnits() {
+		Set<Path> locations = new LinkedHashSet<>();
+		locations.addAll(dropinsLocations);
+		locations.addAll(externalLocations);
+		loadLocations(locations);
 
+		setInternalAndExternalUnits(enumerateUnits(dropinsLocations),
+				enumerateUnits(externalLocations));
+	}
+
+	private void loadLocations(Set<Path> locations) {
 		try {
 			IProvisioningAgent agent = P2Utils.getAgent();
-			IMetadataRepositoryManager metadataRM = (IMetadataRepositoryManager) agent.getService(IMetadataRepositoryManager.SERVICE_NAME);
-			for (Path repoPath : allLocations) {
-				try {
-					String fragment = scl.getSclName() != null ? "#" + scl.getSclName() : "";
-					URI uri = new URI("fedora:" + repoPath + fragment);
-					IMetadataRepository metaRepo = metadataRM.loadRepository(uri, new NullProgressMonitor());
-					metaRepos.put(repoPath, metaRepo);
-				} catch (ProvisionException e) {
-					// ignore and continue if there are repository issues
-				}
+
+			// Locations are independent of each other, so load and index them
+			// concurrently, but keep results in location order
+			List<Path> pending = new ArrayList<>(locations);
+			pending.removeAll(locationUnits.keySet());
+			List<Set<IInstallableUnit>> units = P2Utils.parallelMap(pending,
+					repoPath -> loadUnits(agent, repoPath));
+			for (int i = 0; i < pending.size(); i++) {
+				if (units.get(i) != null)
+					locationUnits.put(pending.get(i), units.get(i));
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+	}
 
-		platformUnits = enumerateUnits(platformLocations);
-
-		internalUnits = enumerateUnits(dropinsLocations);
-		internalUnits.removeAll(platformUnits);
-
-		externalUnits = enumerateUnits(externalLocations);
-		externalUnits.removeAll(platformUnits);
+	/**
+	 * Repositories are created directly rather than loaded through the p2
+	 * repository manager, so that their indices share canonical paths with this
+	 * repository, and so that the manager, which keeps loaded repositories,
+	 * never returns stale contents to a long-running installer indexing again.
+	 *
+	 * @return A set of all installable units from metadata repository at given
+	 *         location, or {@code null} if the repository does not exist.
+	 */
+	private Set<IInstallableUnit> loadUnits(IProvisioningAgent agent, Path repoPath) {
+		if (!Files.exists(repoPath))
+			return null;
+		try {
+			URI uri = new URI("fedora:" + repoPath + sclFragment);
+			IMetadataRepository metaRepo = new FedoraMetadataRepository(agent, uri, canonicalPaths);
+			return metaRepo.query(QueryUtil.ALL_UNITS, new NullProgressMonitor()).toUnmodifiableSet();
+		} catch (URISyntaxException e) {
+			throw new RuntimeException(e);
+		}
 	}
 
 	/**
-	 * @return A set of installable units reachable from given locations.
+	 * @return Installable units reachable from given locations, in location
+	 *         order, possibly with duplicates.
 	 */
-	private Set<IInstallableUnit> enumerateUnits(Set<Path> locations){
-		Set<IInstallableUnit> candidates = new LinkedHashSet<>();
+	private List<IInstallableUnit> enumerateUnits(Set<Path> locations){
+		List<IInstallableUnit> candidates = new ArrayList<>();
 		for (Path loc : locations) {
-			IMetadataRepository repo = metaRepos.get(loc);
-			if (repo != null) {
-				candidates.addAll(repo.query(QueryUtil.ALL_UNITS, new NullProgressMonitor()).toUnmodifiableSet());
+			Set<IInstallableUnit> units = locationUnits.get(loc);
+			if (units != null) {
+				candidates.addAll(units);
 			}
 		}
 		return candidates;
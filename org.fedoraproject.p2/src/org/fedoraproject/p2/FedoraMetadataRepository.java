@@ -38,6 +38,8 @@ import org.eclipse.equinox.p2.query.QueryUtil;
 import org.eclipse.equinox.p2.repository.IRepositoryReference;
 import org.eclipse.equinox.p2.repository.IRunnableWithProgress;
 import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.fedoraproject.p2.jfr.Events;
+import org.fedoraproject.p2.jfr.UnitCreationEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,12 +48,19 @@ public class FedoraMetadataRepository implements IMetadataRepository {
 	private IProvisioningAgent agent;
 	private URI location;
 	private Set<IInstallableUnit> unitCache;
+	private final CanonicalPathCache canonicalPaths;
 	private final Logger logger = LoggerFactory.getLogger(FedoraMetadataRepository.class);
 
 	public FedoraMetadataRepository(IProvisioningAgent agent, URI location) {
+		this(agent, location, new CanonicalPathCache());
+	}
+
+	FedoraMetadataRepository(IProvisioningAgent agent, URI location,
+			CanonicalPathCache canonicalPaths) {
 		this.agent = agent;
 		this.location = location;
 		this.unitCache = new LinkedHashSet<> ();
+		this.canonicalPaths = canonicalPaths;
 	}
 
 	@Override
@@ -134,28 +143,39 @@ public class FedoraMetadataRepository implements IMetadataRepository {
 
 	private Set<IInstallableUnit> getAllSystemIUs() {
 	    if (unitCache.isEmpty()) {
-	        FedoraBundleIndex index = new FedoraBundleIndex(new File(location.getPath()));
+	        FedoraBundleIndex index = new FedoraBundleIndex(new File(location.getPath()), canonicalPaths);
 	        Collection<File> bundlePlugins = index.getAllBundles("osgi.bundle");
 	        Collection<File> bundleFeatures = index.getAllBundles("org.eclipse.update.feature");
 
 	        for (File bundleFile : bundlePlugins) {
 	            IArtifactKey key = index.getKeyForFile(bundleFile);
+	            UnitCreationEvent event = Events.AVAILABLE ? new UnitCreationEvent() : null;
+	            if (event != null)
+	                event.begin();
 	            try {
 	                IInstallableUnit unit = PublisherUtil.createBundleIU(key, bundleFile);
 	                P2Utils.setPath(unit, bundleFile);
 	                unitCache.add(unit);
+	                if (event != null)
+	                    event.commit(bundleFile, 1);
 	            } catch (RuntimeException e) {
 	                logger.warn("{} ({}) is not a valid bundle so it will be ignored.", key, bundleFile);
 	            }
 	        }
 
 	        if (! bundleFeatures.isEmpty()) {
+	            UnitCreationEvent event = Events.AVAILABLE ? new UnitCreationEvent() : null;
+	            if (event != null)
+	                event.begin();
 	            IPublisherInfo info = new PublisherInfo();
 	            IPublisherResult result = new PublisherResult();
 	            FeaturesAction fAction = new FeaturesAction(bundleFeatures.toArray(new File[0]));
 	            fAction.perform(info, result, new NullProgressMonitor());
 	            IQueryResult<IInstallableUnit> units = result.query(QueryUtil.createIUAnyQuery(), new NullProgressMonitor());
-	            unitCache.addAll(units.toUnmodifiableSet());
+	            Set<IInstallableUnit> featureUnits = units.toUnmodifiableSet();
+	            unitCache.addAll(featureUnits);
+	            if (event != null)
+	                event.commit(new File(location.getPath()), featureUnits.size());
 	        }
 	    }
 
@@ -13,6 +13,7 @@ package org.fedoraproject.p2;
 import java.util.Set;
 
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IRequirement;
 
 public interface IFedoraBundleRepository {
 	/**
@@ -23,14 +24,30 @@ public interface IFedoraBundleRepository {
 	/**
 	 * @return A set of installable units that are discovered by the Eclipse platform at runtime.
 	 * This refers to the 'dropins' mechanism of bundle discovery. Any platform units that are
-	 * also present as internal units are ignored.
+	 * also present as internal units are ignored. Dropins are indexed on the first
+	 * call to this method or {@link #getExternalUnits()}.
 	 */
 	Set<IInstallableUnit> getInternalUnits();
 
 	/**
 	 * @return a set of installable units that are OSGi bundles, but not in a location for
 	 * discovery, or inclusion as part of Eclipse. Any platform or internal units that are
-	 * also present as external units are ignored.
+	 * also present as external units are ignored. External locations are indexed on
+	 * the first call to this method or {@link #getInternalUnits()}.
 	 */
 	Set<IInstallableUnit> getExternalUnits();
+
+	/**
+	 * Find units satisfying a requirement. Tiers are searched in
+	 * {@link BundleTier} order using a capability index and the search stops
+	 * at the first tier containing a match, so lower tiers are not indexed
+	 * unless needed.
+	 * 
+	 * @param requirement
+	 *            The requirement to satisfy.
+	 * @return Matching units of the first tier containing any, sorted in
+	 *         {@link CapabilityIndex#PROVIDER_ORDER}, or {@code null} if no
+	 *         unit satisfies the requirement.
+	 */
+	Providers findProviders(IRequirement requirement);
 }
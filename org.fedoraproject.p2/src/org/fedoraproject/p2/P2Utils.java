@@ -11,10 +11,24 @@
 package org.fedoraproject.p2;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.eclipse.equinox.internal.p2.metadata.InstallableUnit;
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
@@ -125,6 +139,187 @@ public class P2Utils {
 			logger.debug("  (none)");
 	}
 
+	/**
+	 * Pool shared by all parallel operations. Nested operations are performed
+	 * by the same pool, so the total number of threads stays bounded by the
+	 * number of available processors.
+	 */
+	private static final ForkJoinPool pool = new ForkJoinPool(Runtime
+			.getRuntime().availableProcessors(), p -> {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+				.newThread(p);
+		thread.setContextClassLoader(P2Utils.class.getClassLoader());
+		return thread;
+	}, null, false);
+
+	/**
+	 * Observer of work performed by each thread, propagated to tasks run on
+	 * its behalf.
+	 */
+	private static final ThreadLocal<WorkObserver> workObserver = new ThreadLocal<>();
+
+	/**
+	 * Whether each thread runs a task reported to a {@link WorkObserver}.
+	 */
+	private static final ThreadLocal<Boolean> observingTask = ThreadLocal
+			.withInitial(() -> false);
+
+	/**
+	 * Set observer of work performed by the current thread. Tasks that
+	 * {@link #parallelMap} runs on behalf of the current thread on other
+	 * threads, including tasks of nested calls, are reported to it.
+	 *
+	 * @param observer
+	 *            observer to set, or {@code null} to remove it
+	 * @return observer previously set for the current thread, or {@code null}
+	 */
+	public static WorkObserver setWorkObserver(WorkObserver observer) {
+		WorkObserver previous = workObserver.get();
+		if (observer != null)
+			workObserver.set(observer);
+		else
+			workObserver.remove();
+		return previous;
+	}
+
+	/**
+	 * Report start of a distinct step to the observer of work performed by
+	 * the current thread, if any.
+	 *
+	 * @return action to run on the current thread once the step is done
+	 */
+	public static Runnable startStep(String name) {
+		WorkObserver observer = workObserver.get();
+		return observer != null ? observer.stepStarted(name) : () -> {
+		};
+	}
+
+	/**
+	 * Apply a function to every element of a list, using a thread pool bounded
+	 * by the number of available processors. May be called from within the
+	 * function applied by another call. Tasks run on threads other than the
+	 * calling one are reported to its {@link WorkObserver}, except for tasks
+	 * run by a thread while it waits for another reported task, as their work
+	 * is already part of that task.
+	 * 
+	 * @param items
+	 *            elements to process
+	 * @param function
+	 *            function to apply, must be safe to call concurrently
+	 * @return results of the function, in the same order as input elements
+	 */
+	public static <T, R> List<R> parallelMap(List<T> items,
+			Function<? super T, ? extends R> function) {
+		List<R> results = new ArrayList<>(items.size());
+		if (items.size() <= 1 || pool.getParallelism() <= 1) {
+			for (T item : items)
+				results.add(function.apply(item));
+			return results;
+		}
+
+		// Failures are recorded rather than thrown, so that they are rethrown
+		// as they are instead of copies made by the pool
+		Throwable[] failures = new Throwable[items.size()];
+		Thread caller = Thread.currentThread();
+		WorkObserver observer = workObserver.get();
+		List<ForkJoinTask<R>> tasks = new ArrayList<>(items.size());
+		for (int i = 0; i < items.size(); i++) {
+			T item = items.get(i);
+			int index = i;
+			tasks.add(ForkJoinTask.adapt(() -> {
+				boolean foreign = Thread.currentThread() != caller;
+				WorkObserver previous = null;
+				Runnable finished = null;
+				if (foreign) {
+					previous = setWorkObserver(observer);
+					if (observer != null && !observingTask.get()) {
+						observingTask.set(true);
+						finished = observer.taskStarted();
+					}
+				}
+				try {
+					return function.apply(item);
+				} catch (RuntimeException | Error e) {
+					failures[index] = e;
+					return null;
+				} finally {
+					if (finished != null) {
+						finished.run();
+						observingTask.set(false);
+					}
+					if (foreign)
+						setWorkObserver(previous);
+				}
+			}));
+		}
+		// Worker threads, including those running an outer call, join
+		// subtasks by executing queued ones instead of blocking. Callers
+		// running in other pools hand the work over to the shared one.
+		if (ForkJoinTask.getPool() == pool)
+			ForkJoinTask.invokeAll(tasks);
+		else
+			pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+		for (int i = 0; i < tasks.size(); i++) {
+			if (failures[i] instanceof RuntimeException)
+				throw (RuntimeException) failures[i];
+			if (failures[i] instanceof Error)
+				throw (Error) failures[i];
+			results.add(tasks.get(i).join());
+		}
+		return results;
+	}
+
+	/**
+	 * @return hex-encoded SHA-256 digest of the given string, suitable for
+	 *         use as a file name
+	 */
+	public static String digest(String text) {
+		MessageDigest md = newDigest();
+		return toHex(md.digest(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * @return hex-encoded SHA-256 digest of contents of the given file, or of
+	 *         names and contents of all files within the given directory
+	 */
+	public static String digest(Path path) throws IOException {
+		MessageDigest md = newDigest();
+		byte[] buffer = new byte[8192];
+		List<Path> files;
+		try (Stream<Path> stream = Files.walk(path)) {
+			files = stream.sorted().collect(Collectors.toList());
+		}
+		for (Path file : files) {
+			md.update(path.relativize(file).toString()
+					.getBytes(StandardCharsets.UTF_8));
+			md.update((byte) 0);
+			if (Files.isRegularFile(file)) {
+				try (InputStream stream = Files.newInputStream(file)) {
+					int n;
+					while ((n = stream.read(buffer)) > 0)
+						md.update(buffer, 0, n);
+				}
+			}
+		}
+		return toHex(md.digest());
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder();
+		for (byte b : bytes)
+			sb.append(String.format("%02x", b));
+		return sb.toString();
+	}
+
 	public static void delete (File root) {
 		if (root.isDirectory()) {
 			for (File child : root.listFiles()) {
@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Prefix tree of file system paths, keyed by path name elements. It answers
+ * whether a path lies under any of the registered roots in time proportional
+ * to the depth of the path, without touching the file system.
+ */
+class PathTrie {
+
+	private final Map<Path, PathTrie> children = new HashMap<>();
+
+	private boolean isRoot;
+
+	void add(Path root) {
+		PathTrie node = this;
+		for (Path name : root) {
+			node = node.children.computeIfAbsent(name, k -> new PathTrie());
+		}
+		node.isRoot = true;
+	}
+
+	/**
+	 * @return {@code true} if the given path is equal to or located under any
+	 *         of the roots added to this trie.
+	 */
+	boolean containsPrefixOf(Path path) {
+		PathTrie node = this;
+		if (node.isRoot)
+			return true;
+		for (Path name : path) {
+			node = node.children.get(name);
+			if (node == null)
+				return false;
+			if (node.isRoot)
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+
+/**
+ * Units of a single tier that satisfy some requirement, best candidate first.
+ * 
+ * @see IFedoraBundleRepository#findProviders
+ */
+public class Providers {
+	private final BundleTier tier;
+
+	private final List<IInstallableUnit> units;
+
+	public Providers(BundleTier tier, List<IInstallableUnit> units) {
+		this.tier = tier;
+		this.units = Collections.unmodifiableList(units);
+	}
+
+	public BundleTier getTier() {
+		return tier;
+	}
+
+	public List<IInstallableUnit> getUnits() {
+		return units;
+	}
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+
+/**
+ * A set of installable units backed by a bit set over the identifiers of a
+ * {@link UnitTable}. Iteration follows identifier order, which is the order
+ * in which units were first interned. Bulk operations between sets sharing
+ * the same table are performed word by word, without hashing units.
+ */
+public class UnitSet extends AbstractSet<IInstallableUnit> {
+
+	private final UnitTable table;
+
+	private final BitSet bits;
+
+	public UnitSet(UnitTable table) {
+		this(table, new BitSet(table.size()));
+	}
+
+	private UnitSet(UnitTable table, BitSet bits) {
+		this.table = table;
+		this.bits = bits;
+	}
+
+	public UnitSet copy() {
+		return new UnitSet(table, (BitSet) bits.clone());
+	}
+
+	private BitSet sameTableBits(Collection<?> c) {
+		if (c instanceof UnitSet && ((UnitSet) c).table == table)
+			return ((UnitSet) c).bits;
+		return null;
+	}
+
+	@Override
+	public Iterator<IInstallableUnit> iterator() {
+		return new Iterator<IInstallableUnit>() {
+			private int next = bits.nextSetBit(0);
+
+			private int last = -1;
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public IInstallableUnit next() {
+				if (next < 0)
+					throw new NoSuchElementException();
+				last = next;
+				next = bits.nextSetBit(next + 1);
+				return table.get(last);
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0)
+					throw new IllegalStateException();
+				bits.clear(last);
+				last = -1;
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return bits.cardinality();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return bits.isEmpty();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		int id = table.indexOf(o);
+		return id >= 0 && bits.get(id);
+	}
+
+	@Override
+	public boolean add(IInstallableUnit unit) {
+		int id = table.intern(unit);
+		if (bits.get(id))
+			return false;
+		bits.set(id);
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		int id = table.indexOf(o);
+		if (id < 0 || !bits.get(id))
+			return false;
+		bits.clear(id);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		bits.clear();
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends IInstallableUnit> c) {
+		BitSet other = sameTableBits(c);
+		if (other == null)
+			return super.addAll(c);
+		int size = bits.cardinality();
+		bits.or(other);
+		return bits.cardinality() != size;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		BitSet other = sameTableBits(c);
+		if (other == null) {
+			boolean modified = false;
+			for (Object o : c)
+				modified |= remove(o);
+			return modified;
+		}
+		int size = bits.cardinality();
+		bits.andNot(other);
+		return bits.cardinality() != size;
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		BitSet other = sameTableBits(c);
+		if (other == null)
+			return super.retainAll(c);
+		int size = bits.cardinality();
+		bits.and(other);
+		return bits.cardinality() != size;
+	}
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+
+/**
+ * A table assigning dense integer identifiers to installable units, in order
+ * of first appearance. Units that are equal (same ID and version) share one
+ * identifier and are represented by the instance that was interned first.
+ * <p>
+ * Interning is not thread-safe, but a fully populated table may be read
+ * concurrently.
+ * 
+ * @see UnitSet
+ */
+public class UnitTable {
+
+	private final Map<IInstallableUnit, Integer> ids = new HashMap<>();
+
+	private final List<IInstallableUnit> units = new ArrayList<>();
+
+	/**
+	 * @return The identifier of the given unit, allocating a new one if the
+	 *         unit was not seen before.
+	 */
+	public int intern(IInstallableUnit unit) {
+		Integer id = ids.get(unit);
+		if (id == null) {
+			id = units.size();
+			units.add(unit);
+			ids.put(unit, id);
+		}
+		return id;
+	}
+
+	/**
+	 * @return The identifier of the given unit, or {@code -1} if the unit is
+	 *         not present in this table.
+	 */
+	public int indexOf(Object unit) {
+		Integer id = ids.get(unit);
+		return id != null ? id : -1;
+	}
+
+	public IInstallableUnit get(int id) {
+		return units.get(id);
+	}
+
+	public int size() {
+		return units.size();
+	}
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+/**
+ * Observer of work performed on behalf of some activity, such as a phase of
+ * installation, possibly on several threads. An observer is set for a thread
+ * with {@link P2Utils#setWorkObserver} and is propagated by
+ * {@link P2Utils#parallelMap} to tasks it runs on other threads.
+ */
+public interface WorkObserver {
+	/**
+	 * Called on a thread about to run a task on behalf of the observed
+	 * activity.
+	 *
+	 * @return action to run on the same thread once the task is done
+	 */
+	Runnable taskStarted();
+
+	/**
+	 * Called on a thread about to perform a distinct step of the observed
+	 * activity, such as lazy indexing.
+	 *
+	 * @param name
+	 *            name of the step
+	 * @return action to run on the same thread once the step is done
+	 */
+	Runnable stepStarted(String name);
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer;
+
+/**
+ * Outcome of one installation of a batch, either its result or the reason
+ * why it failed.
+ */
+public class EclipseInstallationOutcome {
+	private final EclipseInstallationRequest request;
+
+	private final EclipseInstallationResult result;
+
+	private final Exception failure;
+
+	public EclipseInstallationOutcome(EclipseInstallationRequest request,
+			EclipseInstallationResult result) {
+		this.request = request;
+		this.result = result;
+		this.failure = null;
+	}
+
+	public EclipseInstallationOutcome(EclipseInstallationRequest request,
+			Exception failure) {
+		this.request = request;
+		this.result = null;
+		this.failure = failure;
+	}
+
+	public EclipseInstallationRequest getRequest() {
+		return request;
+	}
+
+	/**
+	 * @return result of installation, or {@code null} if it failed
+	 */
+	public EclipseInstallationResult getResult() {
+		return result;
+	}
+
+	/**
+	 * @return exception which caused installation to fail, or {@code null}
+	 *         if it succeeded
+	 */
+	public Exception getFailure() {
+		return failure;
+	}
+
+	public boolean isSuccessful() {
+		return failure == null;
+	}
+}
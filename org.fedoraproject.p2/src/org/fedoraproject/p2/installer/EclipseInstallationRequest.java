@@ -31,6 +31,14 @@ public class EclipseInstallationRequest {
 
 	private boolean ignoreOptional = false;
 
+	private Path cacheDir;
+
+	private boolean parallelResolution = false;
+
+	private boolean cacheResults = false;
+
+	private Path reportFile;
+
 	public Path getBuildRoot() {
 		return buildRoot;
 	}
@@ -70,4 +78,58 @@ public class EclipseInstallationRequest {
 	public boolean ignoreOptional() {
 		return ignoreOptional;
 	}
+
+	public Path getCacheDir() {
+		return cacheDir;
+	}
+
+	/**
+	 * Set directory in which data that is expensive to compute, but does not
+	 * depend on the artifacts being installed, is persisted across runs. If
+	 * not set then such data is only cached in memory.
+	 */
+	public void setCacheDir(Path cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	public boolean isParallelResolution() {
+		return parallelResolution;
+	}
+
+	/**
+	 * Set whether providers of requirements should be looked up on all
+	 * available processors. The result of installation is the same in either
+	 * mode.
+	 */
+	public void setParallelResolution(boolean parallelResolution) {
+		this.parallelResolution = parallelResolution;
+	}
+
+	public boolean isCacheResults() {
+		return cacheResults;
+	}
+
+	/**
+	 * Set whether results of installation should be cached in cache
+	 * directory. When artifacts, options and system bundles are all the same
+	 * as in some previous installation, its dropins are restored from the
+	 * cache instead of being computed again. Has no effect unless cache
+	 * directory is set.
+	 */
+	public void setCacheResults(boolean cacheResults) {
+		this.cacheResults = cacheResults;
+	}
+
+	public Path getReportFile() {
+		return reportFile;
+	}
+
+	/**
+	 * Set file to which wall time, CPU time and allocated bytes of each phase
+	 * of installation and of writing each dropin are written, in JSON format.
+	 * If not set then only a summary is logged.
+	 */
+	public void setReportFile(Path reportFile) {
+		this.reportFile = reportFile;
+	}
 }
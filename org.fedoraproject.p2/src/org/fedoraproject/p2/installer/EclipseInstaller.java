@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Red Hat Inc.
+ * Copyright (c) 2014, 2026 Red Hat Inc.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.fedoraproject.p2.installer;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * XMvn Eclipse Installer OSGi service.
  * 
@@ -28,4 +31,46 @@ public interface EclipseInstaller {
      */
 	EclipseInstallationResult performInstallation(
 			EclipseInstallationRequest request) throws Exception;
+
+    /**
+     * Perform several independent installations of Eclipse artifacts. System
+     * bundles are indexed only once for all requests with the same
+     * configuration files, so this is much cheaper than performing each
+     * installation separately. Failure of one installation does not affect
+     * the others.
+     * <p>
+     * The default implementation performs installations one by one.
+     *
+     * @param requests
+     *            Installation requests.
+     * @return Outcomes of installations, in the same order as requests.
+     */
+	default List<EclipseInstallationOutcome> performInstallations(
+			List<EclipseInstallationRequest> requests) {
+		List<EclipseInstallationOutcome> outcomes = new ArrayList<>(
+				requests.size());
+		for (EclipseInstallationRequest request : requests) {
+			try {
+				outcomes.add(new EclipseInstallationOutcome(request,
+						performInstallation(request)));
+			} catch (Exception e) {
+				outcomes.add(new EclipseInstallationOutcome(request, e));
+			}
+		}
+		return outcomes;
+	}
+
+    /**
+     * Create installer which keeps system bundle indices in memory between
+     * installations, intended for long-running processes. System bundles are
+     * indexed again only when they change on disk. Installations may be
+     * performed concurrently using the returned installer.
+     * <p>
+     * The default implementation returns this installer.
+     *
+     * @return New caching installer.
+     */
+	default EclipseInstaller createCachingInstaller() {
+		return this;
+	}
 }
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utilities shared by on-disk caches. Entries are tagged with version of the
+ * installer, so that entries written by other versions are never read, and
+ * each cache keeps a bounded number of its most recently used entries.
+ */
+class CacheDirectory {
+	private static final Logger logger = LoggerFactory
+			.getLogger(CacheDirectory.class);
+
+	/**
+	 * Version of the layout of cache entries. Bump when changing what caches
+	 * store, in case the installer version is not bumped along with it.
+	 */
+	private static final int FORMAT = 1;
+
+	/**
+	 * Tag of entries written by this installer, safe for use in file names.
+	 */
+	public static final String TAG = FORMAT + "-" + getInstallerVersion();
+
+	private static String getInstallerVersion() {
+		Bundle bundle = FrameworkUtil.getBundle(CacheDirectory.class);
+		if (bundle != null)
+			return bundle.getVersion().toString();
+		String version = CacheDirectory.class.getPackage()
+				.getImplementationVersion();
+		return version != null ? version : "unknown";
+	}
+
+	/**
+	 * Mark given entry as used now, so that it is evicted last.
+	 */
+	public static void touch(Path entry) {
+		try {
+			Files.setLastModifiedTime(entry,
+					FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			logger.debug("Unable to update modification time of {}", entry, e);
+		}
+	}
+
+	/**
+	 * Remove least recently used entries of given cache directory, so that at
+	 * most given number of entries remains. Temporary entries, which are
+	 * named with prefix {@code tmp-}, are left alone as they may be in use by
+	 * concurrent runs. Failure to remove an entry is not fatal.
+	 */
+	public static void evict(Path dir, int maxEntries) {
+		List<Path> entries = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path entry : stream)
+				if (!entry.getFileName().toString().startsWith("tmp-"))
+					entries.add(entry);
+		} catch (IOException e) {
+			logger.debug("Unable to list cache directory {}", dir, e);
+			return;
+		}
+		if (entries.size() <= maxEntries)
+			return;
+
+		Map<Path, FileTime> times = new HashMap<>();
+		for (Path entry : entries)
+			times.put(entry, getLastModifiedTime(entry));
+		entries.sort(Comparator.comparing(times::get));
+
+		for (Path entry : entries.subList(0, entries.size() - maxEntries)) {
+			logger.debug("Evicting cache entry {}", entry);
+			try {
+				delete(entry);
+			} catch (IOException e) {
+				logger.debug("Unable to evict cache entry {}", entry, e);
+			}
+		}
+	}
+
+	/**
+	 * Delete given file or directory tree without following symbolic links,
+	 * which cache entries may contain.
+	 */
+	public static void delete(Path root) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file,
+					BasicFileAttributes attrs) throws IOException {
+				Files.deleteIfExists(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e)
+					throws IOException {
+				Files.deleteIfExists(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private static FileTime getLastModifiedTime(Path entry) {
+		try {
+			return Files.getLastModifiedTime(entry);
+		} catch (IOException e) {
+			return FileTime.fromMillis(0);
+		}
+	}
+}
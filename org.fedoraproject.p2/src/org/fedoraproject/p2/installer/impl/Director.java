@@ -14,26 +14,29 @@ import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.equinox.p2.core.ProvisionException;
-import org.eclipse.equinox.p2.internal.repository.mirroring.Mirroring;
-import org.eclipse.equinox.p2.internal.repository.tools.Repo2Runnable;
 import org.eclipse.equinox.p2.metadata.IArtifactKey;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.publisher.IPublisherAction;
 import org.eclipse.equinox.p2.publisher.IPublisherInfo;
+import org.eclipse.equinox.p2.publisher.IPublisherResult;
 import org.eclipse.equinox.p2.publisher.Publisher;
 import org.eclipse.equinox.p2.publisher.PublisherInfo;
+import org.eclipse.equinox.p2.publisher.PublisherResult;
 import org.eclipse.equinox.p2.publisher.eclipse.BundlesAction;
 import org.eclipse.equinox.p2.publisher.eclipse.Feature;
 import org.eclipse.equinox.p2.publisher.eclipse.FeaturesAction;
-import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
-import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
 import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.fedoraproject.p2.P2Utils;
+import org.fedoraproject.p2.jfr.DropinStepEvent;
+import org.fedoraproject.p2.jfr.Events;
 
 /**
  * @author Mikolaj Izdebski
@@ -41,12 +44,61 @@ import org.fedoraproject.p2.P2Utils;
 public class Director {
 	public static void publish(Repository repository, Iterable<Path> bundles,
 			Iterable<Path> features) throws ProvisionException {
+		DropinStepEvent event = Events.AVAILABLE ? new DropinStepEvent() : null;
+		if (event != null)
+			event.begin();
 		PublisherInfo info = new PublisherInfo();
-		info.setArtifactOptions(IPublisherInfo.A_PUBLISH
-				| IPublisherInfo.A_INDEX | IPublisherInfo.A_OVERWRITE);
+		// Artifacts are only indexed, not copied. Installation reads them
+		// from their original locations.
+		info.setArtifactOptions(IPublisherInfo.A_INDEX);
 		info.setArtifactRepository(repository.getArtifactRepository());
 		info.setMetadataRepository(repository.getMetadataRepository());
 
+		Publisher publisher = new Publisher(info);
+		IStatus status = publisher.publish(createActions(bundles, features),
+				null);
+		if (!status.isOK())
+			throw new ProvisionException(status);
+		if (event != null)
+			event.commit("publish", repository.getLocation(), size(bundles)
+					+ size(features));
+	}
+
+	/**
+	 * Create the same units as {@link #publish} would, but without any
+	 * repository. Artifacts are not indexed, which makes this suitable for
+	 * dependency resolution only.
+	 */
+	public static Set<IInstallableUnit> createUnits(Iterable<Path> bundles,
+			Iterable<Path> features) throws ProvisionException {
+		DropinStepEvent event = Events.AVAILABLE ? new DropinStepEvent() : null;
+		if (event != null)
+			event.begin();
+		PublisherInfo info = new PublisherInfo();
+		IPublisherResult result = new PublisherResult();
+		for (IPublisherAction action : createActions(bundles, features)) {
+			IStatus status = action.perform(info, result,
+					new NullProgressMonitor());
+			if (!status.isOK())
+				throw new ProvisionException(status);
+		}
+		Set<IInstallableUnit> units = new LinkedHashSet<>(result.getIUs(null,
+				null));
+		if (event != null)
+			event.commit("create units", null, units.size());
+		return units;
+	}
+
+	private static int size(Iterable<Path> paths) {
+		int size = 0;
+		if (paths != null)
+			for (Iterator<Path> it = paths.iterator(); it.hasNext(); it.next())
+				size++;
+		return size;
+	}
+
+	private static IPublisherAction[] createActions(Iterable<Path> bundles,
+			Iterable<Path> features) {
 		Collection<IPublisherAction> actions = new ArrayList<>();
 
 		if (bundles != null && bundles.iterator().hasNext()) {
@@ -95,45 +147,6 @@ public class Director {
 			actions.add(action);
 		}
 
-		Publisher publisher = new Publisher(info);
-		IStatus status = publisher.publish(
-				actions.toArray(new IPublisherAction[0]), null);
-		if (!status.isOK())
-			throw new ProvisionException(status);
-	}
-
-	public static void repo2runnable(Repository destinationRepository,
-			Repository sourceRepository) throws ProvisionException {
-		Repo2Runnable repo2Runnable = new Repo2Runnable();
-		repo2Runnable.addSource(sourceRepository.getDescripror());
-		repo2Runnable.addDestination(destinationRepository.getDescripror());
-		repo2Runnable.setFlagAsRunnable(true);
-		repo2Runnable.setCreateFragments(true);
-		IStatus status = repo2Runnable.run(null);
-		if (!status.isOK())
-			throw new ProvisionException(status);
-	}
-
-	public static void mirror(Repository destinationRepository,
-			Repository sourceRepository, Set<IInstallableUnit> units)
-			throws ProvisionException {
-		IMetadataRepository destMr = destinationRepository
-				.getMetadataRepository();
-		destMr.addInstallableUnits(units);
-
-		IArtifactRepository destAr = destinationRepository
-				.getArtifactRepository();
-		IArtifactRepository sourceAr = sourceRepository.getArtifactRepository();
-
-		Collection<IArtifactKey> artifactKeys = new ArrayList<>();
-		for (IInstallableUnit iInstallableUnit : units)
-			artifactKeys.addAll(iInstallableUnit.getArtifacts());
-
-		Mirroring mirror = new Mirroring(sourceAr, destAr, true);
-		mirror.setArtifactKeys(artifactKeys
-				.toArray(new IArtifactKey[artifactKeys.size()]));
-		IStatus status = mirror.run(true, false);
-		if (!status.isOK())
-			throw new ProvisionException(status);
+		return actions.toArray(new IPublisherAction[0]);
 	}
 }
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.equinox.frameworkadmin.BundleInfo;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IProvidedCapability;
+import org.eclipse.equinox.simpleconfigurator.manipulator.SimpleConfiguratorManipulator;
+import org.fedoraproject.p2.Activator;
+import org.fedoraproject.p2.P2Utils;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes runnable layout of a dropin directly from artifacts of units, which
+ * is what mirroring units into a repository and converting it with
+ * Repo2Runnable would produce, minus repository metadata.
+ * <p>
+ * Jar-shaped bundles are copied into {@code plugins/}, directory-shaped
+ * bundles and features are unpacked into {@code plugins/} and
+ * {@code features/} respectively, system units are symlinked into
+ * {@code plugins/} and {@code fragment.info} lists all bundles. Existing
+ * files are overwritten, so that installing into the same root again
+ * succeeds.
+ * <p>
+ * Different dropins may be materialized concurrently.
+ */
+class DropinMaterializer {
+	private static final Logger logger = LoggerFactory
+			.getLogger(DropinMaterializer.class);
+
+	private static final String BUNDLE_CLASSIFIER = "osgi.bundle";
+
+	private static final String FEATURE_CLASSIFIER = "org.eclipse.update.feature";
+
+	private DropinMaterializer() {
+	}
+
+	/**
+	 * @param installationPath
+	 *            dropin directory
+	 * @param content
+	 *            units to install physically
+	 * @param symlinks
+	 *            system units to symlink
+	 */
+	public static void materialize(Path installationPath,
+			Set<IInstallableUnit> content, Set<IInstallableUnit> symlinks)
+			throws IOException {
+		logger.debug("Materializing dropin {}...", installationPath);
+		Files.createDirectories(installationPath);
+
+		for (IInstallableUnit iu : content) {
+			for (IArtifactKey artifact : iu.getArtifacts()) {
+				Path dir;
+				if (BUNDLE_CLASSIFIER.equals(artifact.getClassifier())) {
+					dir = installationPath.resolve("plugins");
+				} else if (FEATURE_CLASSIFIER.equals(artifact.getClassifier())) {
+					dir = installationPath.resolve("features");
+				} else {
+					logger.warn("Skipped artifact {} of unknown type", artifact);
+					continue;
+				}
+
+				Path source = P2Utils.getPath(iu);
+				if (source == null)
+					throw new IOException("Unable to locate artifact " + artifact);
+
+				Files.createDirectories(dir);
+				String baseName = artifact.getId() + "_" + artifact.getVersion();
+				if (P2Utils.isBundleShapeDir(iu)) {
+					Path target = dir.resolve(baseName);
+					if (Files.isDirectory(source))
+						copyTree(source, target);
+					else
+						unpack(source, target);
+				} else {
+					Path target = dir.resolve(baseName + ".jar");
+					if (Files.isDirectory(source))
+						pack(source, target);
+					else
+						Files.copy(source, target,
+								StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+		}
+
+		Path pluginsDir = installationPath.resolve("plugins");
+		for (IInstallableUnit iu : symlinks) {
+			Files.createDirectories(pluginsDir);
+			Path path = P2Utils.getPath(iu);
+			if (path == null) {
+				logger.error("Unable to locate dependency in index: {}", iu);
+			} else {
+				String baseName = iu.getId() + "_" + iu.getVersion();
+				String suffix = Files.isDirectory(path) ? "" : ".jar";
+				Path link = pluginsDir.resolve(baseName + suffix);
+				if (Files.isDirectory(link, LinkOption.NOFOLLOW_LINKS))
+					P2Utils.delete(link.toFile());
+				else
+					Files.deleteIfExists(link);
+				Files.createSymbolicLink(link, path);
+				logger.debug("Linked external dependency {} => {}", baseName
+						+ suffix, path);
+			}
+		}
+
+		Set<IInstallableUnit> units = new LinkedHashSet<>(content);
+		units.addAll(symlinks);
+		writeFragmentInfo(installationPath, units);
+	}
+
+	/**
+	 * Write {@code fragment.info} in the same way as Repo2Runnable does.
+	 * Synchronized as the manipulator service is not documented to be
+	 * thread-safe.
+	 */
+	private static synchronized void writeFragmentInfo(Path installationPath,
+			Set<IInstallableUnit> units) throws IOException {
+		Path pluginsDir = installationPath.resolve("plugins");
+		List<BundleInfo> bundles = new ArrayList<>();
+		for (IInstallableUnit iu : units) {
+			if (iu.getId().equals("a.jre") || !isBundle(iu))
+				continue;
+			String baseName = iu.getId() + "_" + iu.getVersion();
+			for (Path path : new Path[] { pluginsDir.resolve(baseName),
+					pluginsDir.resolve(baseName + ".jar") }) {
+				if (Files.exists(path)) {
+					bundles.add(new BundleInfo(iu.getId(), iu.getVersion()
+							.toString(), path.toUri(), -1, false));
+					break;
+				}
+			}
+		}
+
+		BundleContext context = Activator.getContext();
+		ServiceReference<SimpleConfiguratorManipulator> ref = context
+				.getServiceReference(SimpleConfiguratorManipulator.class);
+		if (ref == null)
+			throw new RuntimeException("No registered OSGi services for "
+					+ SimpleConfiguratorManipulator.class);
+		try {
+			SimpleConfiguratorManipulator manipulator = context.getService(ref);
+			if (manipulator == null)
+				throw new RuntimeException("Unable to get OSGi service for "
+						+ SimpleConfiguratorManipulator.class);
+			manipulator.saveConfiguration(bundles.toArray(new BundleInfo[0]),
+					installationPath.resolve("fragment.info").toFile(),
+					installationPath.toUri());
+		} finally {
+			context.ungetService(ref);
+		}
+	}
+
+	private static boolean isBundle(IInstallableUnit iu) {
+		for (IProvidedCapability cap : iu.getProvidedCapabilities()) {
+			if (cap.getNamespace().equals("org.eclipse.equinox.p2.eclipse.type")
+					&& cap.getName().equals("bundle"))
+				return true;
+		}
+		return false;
+	}
+
+	private static void unpack(Path archive, Path target) throws IOException {
+		Files.createDirectories(target);
+		try (ZipInputStream zip = new ZipInputStream(
+				Files.newInputStream(archive))) {
+			for (ZipEntry entry; (entry = zip.getNextEntry()) != null;) {
+				Path path = target.resolve(entry.getName()).normalize();
+				if (!path.startsWith(target))
+					throw new IOException("Illegal entry " + entry.getName()
+							+ " in " + archive);
+				if (entry.isDirectory()) {
+					Files.createDirectories(path);
+				} else {
+					Files.createDirectories(path.getParent());
+					Files.copy(zip, path, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+		}
+	}
+
+	private static void copyTree(Path source, Path target) throws IOException {
+		try (Stream<Path> stream = Files.walk(source)) {
+			for (Path path : stream.collect(Collectors.toList())) {
+				Path dest = target.resolve(source.relativize(path).toString());
+				if (Files.isDirectory(path))
+					Files.createDirectories(dest);
+				else
+					Files.copy(path, dest, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+	}
+
+	private static void pack(Path source, Path target) throws IOException {
+		try (Stream<Path> stream = Files.walk(source);
+				OutputStream out = Files.newOutputStream(target);
+				ZipOutputStream zip = new ZipOutputStream(out)) {
+			for (Iterator<Path> it = stream.filter(Files::isRegularFile)
+					.sorted().iterator(); it.hasNext();) {
+				Path path = it.next();
+				String name = source.relativize(path).toString()
+						.replace(path.getFileSystem().getSeparator(), "/");
+				zip.putNextEntry(new ZipEntry(name));
+				try (InputStream in = Files.newInputStream(path)) {
+					in.transferTo(zip);
+				}
+				zip.closeEntry();
+			}
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.equinox.p2.core.IProvisioningAgent;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.query.IQuery;
+import org.eclipse.equinox.p2.query.IQueryResult;
+import org.eclipse.equinox.p2.query.IQueryable;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactDescriptor;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRequest;
+import org.eclipse.equinox.p2.repository.artifact.spi.AbstractArtifactRepository;
+
+/**
+ * Transient artifact repository that is never serialized. Only artifact
+ * descriptors are recorded; contents are never stored, as artifacts are read
+ * from their original locations when installed. Content written to the
+ * repository is discarded.
+ */
+class InMemoryArtifactRepository extends AbstractArtifactRepository {
+	private static final String PLUGIN_ID = "org.fedoraproject.p2";
+
+	private final Map<IArtifactKey, IArtifactDescriptor> descriptors = new LinkedHashMap<>();
+
+	InMemoryArtifactRepository(IProvisioningAgent agent, URI location) {
+		super(agent, "xmvn-p2-repo", InMemoryArtifactRepository.class
+				.getName(), "1.0.0", location, null, null,
+				new LinkedHashMap<>());
+	}
+
+	@Override
+	public boolean isModifiable() {
+		return true;
+	}
+
+	@Override
+	public boolean contains(IArtifactDescriptor descriptor) {
+		return contains(descriptor.getArtifactKey());
+	}
+
+	@Override
+	public synchronized boolean contains(IArtifactKey key) {
+		return descriptors.containsKey(key);
+	}
+
+	@Override
+	public IStatus getArtifact(IArtifactDescriptor descriptor,
+			OutputStream destination, IProgressMonitor monitor) {
+		return new Status(IStatus.ERROR, PLUGIN_ID, "Content of artifact "
+				+ descriptor.getArtifactKey() + " is not stored");
+	}
+
+	@Override
+	public IStatus getRawArtifact(IArtifactDescriptor descriptor,
+			OutputStream destination, IProgressMonitor monitor) {
+		return getArtifact(descriptor, destination, monitor);
+	}
+
+	@Override
+	public synchronized IArtifactDescriptor[] getArtifactDescriptors(
+			IArtifactKey key) {
+		IArtifactDescriptor descriptor = descriptors.get(key);
+		if (descriptor == null)
+			return new IArtifactDescriptor[0];
+		return new IArtifactDescriptor[] { descriptor };
+	}
+
+	@Override
+	public IStatus getArtifacts(IArtifactRequest[] requests,
+			IProgressMonitor monitor) {
+		for (IArtifactRequest request : requests) {
+			request.perform(this, new NullProgressMonitor());
+		}
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * @return stream discarding artifact content, which adds the descriptor
+	 *         to the repository when closed
+	 */
+	@Override
+	public OutputStream getOutputStream(IArtifactDescriptor descriptor) {
+		return new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+
+			@Override
+			public void close() {
+				addDescriptor(descriptor, null);
+			}
+		};
+	}
+
+	@Override
+	public synchronized void addDescriptor(IArtifactDescriptor descriptor,
+			IProgressMonitor monitor) {
+		descriptors.putIfAbsent(descriptor.getArtifactKey(), descriptor);
+	}
+
+	@Override
+	public void addDescriptors(IArtifactDescriptor[] descriptors,
+			IProgressMonitor monitor) {
+		for (IArtifactDescriptor descriptor : descriptors)
+			addDescriptor(descriptor, monitor);
+	}
+
+	@Override
+	public void removeDescriptor(IArtifactDescriptor descriptor,
+			IProgressMonitor monitor) {
+		removeDescriptor(descriptor.getArtifactKey(), monitor);
+	}
+
+	@Override
+	public synchronized void removeDescriptor(IArtifactKey key,
+			IProgressMonitor monitor) {
+		descriptors.remove(key);
+	}
+
+	@Override
+	public void removeDescriptors(IArtifactDescriptor[] descriptors,
+			IProgressMonitor monitor) {
+		for (IArtifactDescriptor descriptor : descriptors)
+			removeDescriptor(descriptor, monitor);
+	}
+
+	@Override
+	public void removeDescriptors(IArtifactKey[] keys, IProgressMonitor monitor) {
+		for (IArtifactKey key : keys)
+			removeDescriptor(key, monitor);
+	}
+
+	@Override
+	public synchronized void removeAll(IProgressMonitor monitor) {
+		descriptors.clear();
+	}
+
+	@Override
+	public synchronized IQueryResult<IArtifactKey> query(
+			IQuery<IArtifactKey> query, IProgressMonitor monitor) {
+		return query.perform(new ArrayList<>(descriptors.keySet()).iterator());
+	}
+
+	@Override
+	public IQueryable<IArtifactDescriptor> descriptorQueryable() {
+		return (query, monitor) -> {
+			ArrayList<IArtifactDescriptor> result;
+			synchronized (this) {
+				result = new ArrayList<>(descriptors.values());
+			}
+			return query.perform(result.iterator());
+		};
+	}
+}
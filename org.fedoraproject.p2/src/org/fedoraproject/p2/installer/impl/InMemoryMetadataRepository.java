@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.equinox.p2.core.IProvisioningAgent;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.query.IQuery;
+import org.eclipse.equinox.p2.query.IQueryResult;
+import org.eclipse.equinox.p2.repository.IRepositoryReference;
+import org.eclipse.equinox.p2.repository.metadata.spi.AbstractMetadataRepository;
+
+/**
+ * Transient metadata repository that keeps installable units in memory and is
+ * never serialized.
+ */
+class InMemoryMetadataRepository extends AbstractMetadataRepository {
+	private final Set<IInstallableUnit> units = new LinkedHashSet<>();
+
+	InMemoryMetadataRepository(IProvisioningAgent agent, URI location) {
+		super(agent, "xmvn-p2-repo", InMemoryMetadataRepository.class
+				.getName(), "1.0.0", location, null, null,
+				new LinkedHashMap<>());
+	}
+
+	@Override
+	public void initialize(RepositoryState state) {
+	}
+
+	@Override
+	public boolean isModifiable() {
+		return true;
+	}
+
+	@Override
+	public synchronized void addInstallableUnits(
+			Collection<IInstallableUnit> installableUnits) {
+		units.addAll(installableUnits);
+	}
+
+	@Override
+	public synchronized boolean removeInstallableUnits(
+			Collection<IInstallableUnit> installableUnits) {
+		return units.removeAll(installableUnits);
+	}
+
+	@Override
+	public synchronized void removeAll() {
+		units.clear();
+	}
+
+	@Override
+	public Collection<IRepositoryReference> getReferences() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public synchronized IQueryResult<IInstallableUnit> query(
+			IQuery<IInstallableUnit> query, IProgressMonitor monitor) {
+		return query.perform(new ArrayList<>(units).iterator());
+	}
+}
@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.fedoraproject.p2.P2Utils;
+import org.fedoraproject.p2.WorkObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Wall time, CPU time and allocated bytes of phases of an installation and
+ * of writing individual dropins. CPU time and allocations include tasks run
+ * on behalf of a phase by {@link P2Utils#parallelMap} on other threads, and
+ * are reported as -1 where the JVM can't measure them. Steps reported while a
+ * phase is measured, such as lazy indexing, are recorded as phases nested in
+ * it.
+ */
+class InstallationReport {
+	private static final Logger logger = LoggerFactory
+			.getLogger(InstallationReport.class);
+
+	private static final ThreadMXBean threadBean = ManagementFactory
+			.getThreadMXBean();
+
+	/**
+	 * {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)},
+	 * looked up reflectively as {@code com.sun.management} is not available
+	 * on all JVMs
+	 */
+	private static final Method allocatedBytesMethod = findAllocatedBytesMethod();
+
+	private final List<Measurement> phases = new ArrayList<>();
+
+	private final List<Measurement> dropins = new ArrayList<>();
+
+	/**
+	 * Resource usage of a single phase, measured on the thread which started
+	 * it and on threads running tasks on its behalf. While the measurement
+	 * runs, it observes work of the thread which started it.
+	 */
+	class Measurement implements WorkObserver {
+		private final String name;
+
+		private final boolean isDropin;
+
+		/**
+		 * Observer of the thread when this measurement started, which is
+		 * restored when it stops.
+		 */
+		private final WorkObserver previousObserver;
+
+		/**
+		 * Measurement this one is nested in, or {@code null}
+		 */
+		private final Measurement parent;
+
+		private final long startWall;
+
+		private final long startCpu;
+
+		private final long startAllocated;
+
+		private final AtomicLong taskCpu = new AtomicLong();
+
+		private final AtomicLong taskAllocated = new AtomicLong();
+
+		private long wall;
+
+		private long cpu;
+
+		private long allocated;
+
+		private Measurement(String name, boolean isDropin) {
+			this.name = name;
+			this.isDropin = isDropin;
+			previousObserver = P2Utils.setWorkObserver(this);
+			parent = previousObserver instanceof Measurement ? (Measurement) previousObserver
+					: null;
+			startWall = System.nanoTime();
+			startCpu = getCpuTime();
+			startAllocated = getAllocatedBytes();
+		}
+
+		/**
+		 * End the measurement. Must be called on the same thread which
+		 * started it.
+		 */
+		public void stop() {
+			wall = System.nanoTime() - startWall;
+			cpu = sum(difference(startCpu, getCpuTime()), taskCpu.get());
+			allocated = sum(difference(startAllocated, getAllocatedBytes()),
+					taskAllocated.get());
+			P2Utils.setWorkObserver(previousObserver);
+			synchronized (InstallationReport.this) {
+				(isDropin ? dropins : phases).add(this);
+			}
+		}
+
+		@Override
+		public Runnable taskStarted() {
+			long startTaskCpu = getCpuTime();
+			long startTaskAllocated = getAllocatedBytes();
+			// Outer measurements include work of nested ones
+			Runnable parentFinished = previousObserver != null ? previousObserver
+					.taskStarted() : null;
+			return () -> {
+				long cpuUsed = difference(startTaskCpu, getCpuTime());
+				taskCpu.accumulateAndGet(cpuUsed, InstallationReport::sum);
+				long allocatedBytes = difference(startTaskAllocated,
+						getAllocatedBytes());
+				taskAllocated.accumulateAndGet(allocatedBytes,
+						InstallationReport::sum);
+				if (parentFinished != null)
+					parentFinished.run();
+			};
+		}
+
+		@Override
+		public Runnable stepStarted(String step) {
+			// Compound repositories index their parts as the same step
+			if (step.equals(name))
+				return () -> {
+				};
+			return start(step)::stop;
+		}
+	}
+
+	/**
+	 * Start measuring a phase of installation on the current thread.
+	 */
+	public Measurement start(String phase) {
+		return new Measurement(phase, false);
+	}
+
+	/**
+	 * Start measuring writing of given dropin on the current thread.
+	 */
+	public Measurement startDropin(Path installationPath) {
+		return new Measurement(installationPath.toString(), true);
+	}
+
+	/**
+	 * Log wall time of all phases. Nested phases are not counted in the
+	 * total, as their parent phases include them.
+	 */
+	public synchronized void logSummary() {
+		long total = phases.stream().filter(m -> m.parent == null)
+				.mapToLong(m -> m.wall).sum();
+		logger.info("Installation took {} ms: {}", total / 1000000, phases
+				.stream().map(m -> m.name + " " + m.wall / 1000000 + " ms"
+						+ (m.parent != null ? " (within " + m.parent.name
+								+ ")" : ""))
+				.collect(Collectors.joining(", ")));
+	}
+
+	/**
+	 * Write report to given file in JSON format.
+	 */
+	public synchronized void write(Path file) throws IOException {
+		StringBuilder json = new StringBuilder("{\n");
+		json.append("  \"phases\": ");
+		appendMeasurements(json, phases);
+		json.append(",\n  \"dropins\": ");
+		appendMeasurements(json, dropins);
+		json.append("\n}\n");
+		Files.write(file, json.toString().getBytes(StandardCharsets.UTF_8));
+		logger.info("Wrote installation report to {}", file);
+	}
+
+	private static void appendMeasurements(StringBuilder json,
+			List<Measurement> measurements) {
+		json.append('[');
+		String separator = "\n";
+		for (Measurement m : measurements) {
+			json.append(separator).append("    {\"name\": ");
+			appendString(json, m.name);
+			json.append(", \"wallNanos\": ").append(m.wall);
+			json.append(", \"cpuNanos\": ").append(m.cpu);
+			json.append(", \"allocatedBytes\": ").append(m.allocated);
+			if (m.parent != null && !m.isDropin) {
+				json.append(", \"within\": ");
+				appendString(json, m.parent.name);
+			}
+			json.append('}');
+			separator = ",\n";
+		}
+		json.append(measurements.isEmpty() ? "]" : "\n  ]");
+	}
+
+	private static void appendString(StringBuilder json, String value) {
+		json.append('"');
+		for (char c : value.toCharArray()) {
+			if (c == '"' || c == '\\')
+				json.append('\\').append(c);
+			else if (c < 0x20)
+				json.append(String.format("\\u%04x", (int) c));
+			else
+				json.append(c);
+		}
+		json.append('"');
+	}
+
+	/**
+	 * @return difference of given counter values, or -1 if either is unknown
+	 */
+	private static long difference(long start, long end) {
+		return start < 0 || end < 0 ? -1 : end - start;
+	}
+
+	/**
+	 * @return sum of given amounts, or -1 if either is unknown
+	 */
+	private static long sum(long a, long b) {
+		return a < 0 || b < 0 ? -1 : a + b;
+	}
+
+	private static long getCpuTime() {
+		try {
+			return threadBean.getCurrentThreadCpuTime();
+		} catch (UnsupportedOperationException e) {
+			return -1;
+		}
+	}
+
+	private static long getAllocatedBytes() {
+		if (allocatedBytesMethod == null)
+			return -1;
+		try {
+			return (Long) allocatedBytesMethod.invoke(threadBean, Thread
+					.currentThread().getId());
+		} catch (ReflectiveOperationException e) {
+			return -1;
+		}
+	}
+
+	private static Method findAllocatedBytesMethod() {
+		try {
+			Class<?> beanClass = Class.forName(
+					"com.sun.management.ThreadMXBean", false,
+					ClassLoader.getSystemClassLoader());
+			if (beanClass.isInstance(threadBean))
+				return beanClass.getMethod("getThreadAllocatedBytes",
+						long.class);
+		} catch (ReflectiveOperationException e) {
+			// Not a HotSpot-based JVM
+		}
+		return null;
+	}
+}
@@ -0,0 +1,698 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IInstallableUnitFragment;
+import org.eclipse.equinox.p2.metadata.IRequirement;
+import org.fedoraproject.p2.CapabilityIndex;
+import org.fedoraproject.p2.CompoundBundleRepository;
+import org.fedoraproject.p2.EclipseSystemLayout;
+import org.fedoraproject.p2.IFedoraBundleRepository;
+import org.fedoraproject.p2.P2Utils;
+import org.fedoraproject.p2.Providers;
+import org.fedoraproject.p2.SCL;
+import org.fedoraproject.p2.WorkObserver;
+import org.fedoraproject.p2.installer.Dropin;
+import org.fedoraproject.p2.installer.EclipseArtifact;
+import org.fedoraproject.p2.installer.EclipseInstallationRequest;
+import org.fedoraproject.p2.installer.EclipseInstallationResult;
+import org.fedoraproject.p2.installer.impl.InstallationReport.Measurement;
+import org.fedoraproject.p2.installer.impl.Resolution.Source;
+import org.fedoraproject.p2.jfr.DropinStepEvent;
+import org.fedoraproject.p2.jfr.Events;
+import org.fedoraproject.p2.jfr.RequirementResolutionEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * State of a single installation. Nothing is shared between sessions except
+ * caches which are safe for concurrent readers, such as JRE units, so any
+ * number of sessions may run concurrently.
+ */
+class InstallationSession {
+	private final Logger logger = LoggerFactory
+			.getLogger(InstallationSession.class);
+
+	private final EclipseInstallationRequest request;
+
+	private final BiFunction<List<Path>, Supplier<String>, IFedoraBundleRepository> indexProvider;
+
+	private Set<IInstallableUnit> reactor;
+
+	private CapabilityIndex reactorIndex;
+
+	private Path cacheDir;
+
+	private Map<IInstallableUnit, Set<IInstallableUnit>> reactorRequires;
+
+	private Set<Package> metapackages;
+
+	private Map<IInstallableUnit, Package> metapackageLookup;
+
+	private LinkedList<Package> toProcess;
+
+	private IFedoraBundleRepository index;
+
+	private List<Path> sclConfs;
+
+	/**
+	 * Stamp of system bundle locations, taken when first needed, as it walks
+	 * all of them.
+	 */
+	private String systemStamp;
+
+	private boolean ignoreOptional;
+
+	private Set<IInstallableUnit> unitCache;
+
+	/**
+	 * Resolutions of requirements that were already seen in this
+	 * installation. Keys are the first instance of each distinct requirement.
+	 */
+	private Map<IRequirement, Resolution> resolutions;
+
+	private boolean parallelResolution;
+
+	private ResolutionCache resolutionCache;
+
+	private final InstallationReport report = new InstallationReport();
+
+	public InstallationSession(EclipseInstallationRequest request) {
+		this(request, (sclConfs, stamp) -> createIndex(sclConfs));
+	}
+
+	/**
+	 * @param indexProvider
+	 *            provider of system bundle repository for given list of SCL
+	 *            configuration files and supplier of stamp of system bundle
+	 *            locations
+	 */
+	public InstallationSession(EclipseInstallationRequest request,
+			BiFunction<List<Path>, Supplier<String>, IFedoraBundleRepository> indexProvider) {
+		this.request = request;
+		this.indexProvider = indexProvider;
+	}
+
+	public static IFedoraBundleRepository createIndex(List<Path> sclConfs) {
+		return new CompoundBundleRepository(sclConfs.stream().map(SCL::new)
+				.collect(Collectors.toList()));
+	}
+
+	/**
+	 * @return stamp of system bundle locations, shared by all caches used in
+	 *         this session
+	 */
+	private String getSystemStamp() {
+		if (systemStamp == null)
+			systemStamp = SystemIndexCache.stamp(sclConfs);
+		return systemStamp;
+	}
+
+	public EclipseInstallationResult run() throws Exception {
+		// Phases left running by a failure must not observe work this thread
+		// does after the installation
+		WorkObserver observer = P2Utils.setWorkObserver(null);
+		try {
+			return runPhases();
+		} finally {
+			P2Utils.setWorkObserver(observer);
+		}
+	}
+
+	private EclipseInstallationResult runPhases() throws Exception {
+		Measurement phase = report.start("platform indexing");
+		logger.info("Indexing system bundles and features...");
+		sclConfs = request.getConfigFiles();
+		if (sclConfs.isEmpty())
+			sclConfs = EclipseSystemLayout.getSclConfFiles();
+		List<SCL> scls = sclConfs.stream().map(SCL::new).collect(Collectors.toList());
+		index = indexProvider.apply(sclConfs, this::getSystemStamp);
+		phase.stop();
+
+		ResultCache resultCache = null;
+		if (request.isCacheResults() && request.getCacheDir() != null) {
+			phase = report.start("result cache lookup");
+			resultCache = ResultCache.open(request.getCacheDir(), request,
+					sclConfs, getSystemStamp());
+			EclipseInstallationResult result = resultCache.restore(request);
+			phase.stop();
+			if (result != null) {
+				logger.info("Restored installation result from cache");
+				writeReport();
+				return result;
+			}
+		}
+
+		EclipseInstallationResult result = install(scls.iterator().next());
+		if (resultCache != null) {
+			phase = report.start("result cache store");
+			resultCache.store(request, result);
+			phase.stop();
+		}
+		writeReport();
+		return result;
+	}
+
+	private void writeReport() throws IOException {
+		report.logSummary();
+		if (request.getReportFile() != null)
+			report.write(request.getReportFile());
+	}
+
+	private EclipseInstallationResult install(SCL currentScl)
+			throws Exception {
+		Measurement phase = report.start("reactor publish");
+		Set<Path> plugins = new LinkedHashSet<>();
+		Set<Path> features = new LinkedHashSet<>();
+		Map<Path, EclipseArtifact> reactorMap = new LinkedHashMap<>();
+		for (EclipseArtifact artifact : request.getArtifacts()) {
+			Path path = artifact.getPath();
+			reactorMap.put(path, artifact);
+			if (artifact.isFeature())
+				features.add(path);
+			else
+				plugins.add(path);
+		}
+		if (request.getBuildRoot() == null) {
+			// Dry run only resolves dependencies, which needs nothing but
+			// reactor units
+			logger.info("Creating reactor units...");
+			reactor = Director.createUnits(plugins, features);
+		} else {
+			logger.info("Creating reactor repository...");
+			Repository reactorRepo = Repository.createInMemory();
+			if (request.getCacheDir() != null)
+				PublishCache.publish(request.getCacheDir(), reactorRepo,
+						plugins, features);
+			else
+				Director.publish(reactorRepo, plugins, features);
+			reactor = reactorRepo.getAllUnits();
+		}
+		// Remove all host localization fragments
+		reactor.removeAll(reactor.stream()
+                .filter(u -> u.getId().endsWith("translated_host_properties"))
+                .collect(Collectors.toSet()));
+		Set<Path> reactorPaths = reactor.stream().map(P2Utils::getPath).collect(Collectors.toSet());
+		request.getArtifacts().stream().filter(a -> !reactorPaths.contains(a.getPath()))
+				.forEach(a -> logger.error("Not a valid {}: {}", a.isFeature() ? "feature" : "plugin", a.getPath()));
+		if (reactor.stream().collect(Collectors.summingInt(u -> u.getArtifacts().size()))
+				!= plugins.size() + features.size()) {
+			throw new RuntimeException("Reactor contains invalid plugin or feature");
+		}
+		reactorIndex = new CapabilityIndex(reactor);
+		phase.stop();
+
+		ignoreOptional = request.ignoreOptional();
+		cacheDir = request.getCacheDir();
+		parallelResolution = request.isParallelResolution();
+
+		String namespace = currentScl.getSclName();
+
+		P2Utils.dump("Reactor contents", reactor);
+
+		phase = report.start("metapackage creation");
+		Map<String, Set<IInstallableUnit>> packages = new LinkedHashMap<>();
+
+		for (IInstallableUnit unit : reactor) {
+			Path path = P2Utils.getPath(unit);
+			EclipseArtifact provide = reactorMap.get(path);
+			if (provide == null) {
+				logger.debug("Skipped unit {}: provide is null", unit);
+				continue;
+			}
+			String packageId = provide.getTargetPackage();
+			if (packageId == null)
+				continue;
+
+			Set<IInstallableUnit> pkg = packages.get(packageId);
+			if (pkg == null) {
+				pkg = new LinkedHashSet<>();
+				packages.put(packageId, pkg);
+			}
+			pkg.add(unit);
+		}
+
+		createMetapackages(packages);
+		phase.stop();
+
+		phase = report.start("dependency resolution");
+		resolveDeps();
+		phase.stop();
+
+		// Internal and external units are indexed on first use, so only dump
+		// them if they are going to be logged anyway, after resolution had a
+		// chance to index them where needed
+		if (logger.isDebugEnabled()) {
+			P2Utils.dump("Platform units", index.getPlatformUnits());
+			P2Utils.dump("Internal units", index.getInternalUnits());
+			P2Utils.dump("External units", index.getExternalUnits());
+		}
+
+		phase = report.start("SCC detection");
+		Package.detectStrongComponents(metapackages);
+		phase.stop();
+
+		phase = report.start("splitting");
+		Package.splitSplittable(metapackages);
+		phase.stop();
+
+		phase = report.start("virtual expansion");
+		Package.expandVirtualPackages(metapackages, request.getMainPackageId());
+		phase.stop();
+
+		phase = report.start("dropin layout");
+
+		Set<Dropin> dropins = new LinkedHashSet<>();
+		List<DropinContents> dropinContents = new ArrayList<>();
+
+		for (Package metapkg : metapackages) {
+			for (Entry<String, Set<IInstallableUnit>> entry : metapkg
+					.getPackageMap().entrySet()) {
+				String name = entry.getKey();
+				Set<IInstallableUnit> content = entry.getValue();
+
+				// Find if any IUs in this package use or contain native components
+				boolean archfulDropin = false;
+				for (IInstallableUnit unit : content) {
+					EclipseArtifact provide = reactorMap.get(P2Utils.getPath(unit));
+					if (provide != null && provide.isNative()) {
+						archfulDropin = true;
+					}
+				}
+
+				// Determine the dropins directory to use
+				Path dropinDir;
+				if (name.endsWith("-tests")) {
+					dropinDir = currentScl.getTestBundleDir();
+				} else {
+					if (archfulDropin) {
+						dropinDir = currentScl.getArchDropletDir();
+					} else {
+						dropinDir = currentScl.getNoarchDropletDir();
+					}
+				}
+				if (dropinDir == null)
+					throw new RuntimeException(
+							"Current SCL is not capable of holding Eclipse plugins.");
+				dropinDir = Paths.get("/").relativize(dropinDir);
+
+				logger.info("Creating {} dropin {}...", archfulDropin ? "archful" : "noarch", name);
+				Dropin dropin = new Dropin(name, dropinDir.resolve(name));
+				dropins.add(dropin);
+
+				P2Utils.dump("Metapackage contents", content);
+				Set<IInstallableUnit> symlinks = new LinkedHashSet<>();
+				symlinks.addAll(content);
+				content.retainAll(reactor);
+				symlinks.removeAll(content);
+				P2Utils.dump("Dropin physical units", content);
+				P2Utils.dump("Dropin symlinks", symlinks);
+
+				Path installationPath = dropin.getPath();
+				dropinContents.add(new DropinContents(installationPath,
+						content, symlinks));
+
+				for (IInstallableUnit unit : content) {
+					for (IArtifactKey artifact : unit.getArtifacts()) {
+						EclipseArtifact provide = reactorMap.get(P2Utils.getPath(unit));
+						String type = provide.isFeature() ? "features" : "plugins";
+						StringBuilder artifactName = new StringBuilder(artifact.getId()).append("_").append(artifact.getVersion());
+						if (!P2Utils.isBundleShapeDir(unit)) {
+							artifactName.append(".jar");
+						}
+						Path path = installationPath.resolve(type).resolve(
+								artifactName.toString());
+						if (provide.getInstalledPath() != null)
+							throw new RuntimeException(
+									"One provide has multiple artifacts: "
+											+ provide.getInstalledPath()
+											+ " and " + path);
+						provide.setInstalledPath(Paths.get("/").resolve(path));
+
+						provide.setId(artifact.getId());
+						provide.setVersion(artifact.getVersion().toString());
+						dropin.addProvide(provide);
+
+						if (namespace != null && !namespace.isEmpty())
+							provide.setProperty("osgi.namespace", namespace);
+
+						Set<IInstallableUnit> requires = reactorRequires
+								.get(unit);
+						requires.removeAll(content);
+						// Remove all fragments from requires generation
+						requires.removeAll(requires.stream().filter(
+						        r -> r.getProvidedCapabilities().stream().anyMatch(
+						                p -> p.getNamespace().equals("osgi.fragment")))
+                                        .collect(Collectors.toSet()));
+						if (!requires.isEmpty()) {
+							provide.setProperty("osgi.requires", requires
+									.stream().map(P2Utils::toString)
+									.collect(Collectors.joining(",")));
+						}
+					}
+				}
+			}
+		}
+
+		phase.stop();
+
+		if (request.getBuildRoot() != null) {
+			phase = report.start("dropin materialization");
+			// Dropins are written to separate directories, so they can be
+			// written concurrently. Start with the largest ones to keep all
+			// threads busy until the end.
+			logger.info("Writing {} dropins...", dropinContents.size());
+			List<DropinContents> bySize = new ArrayList<>(dropinContents);
+			bySize.sort(Comparator.comparingLong(DropinContents::getSize)
+					.reversed());
+			try {
+				P2Utils.parallelMap(bySize, contents -> {
+					try {
+						Measurement dropinPhase = report
+								.startDropin(contents.installationPath);
+						DropinStepEvent event = Events.AVAILABLE ? new DropinStepEvent()
+								: null;
+						if (event != null)
+							event.begin();
+						DropinMaterializer.materialize(request.getBuildRoot()
+								.resolve(contents.installationPath),
+								contents.content, contents.symlinks);
+						if (event != null)
+							event.commit("materialize",
+									contents.installationPath,
+									contents.content.size()
+											+ contents.symlinks.size());
+						dropinPhase.stop();
+						return null;
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			phase.stop();
+		}
+
+		return new EclipseInstallationResult(dropins);
+	}
+
+	/**
+	 * Units to be placed in a dropin, either physically or as symlinks.
+	 */
+	private static class DropinContents {
+		final Path installationPath;
+
+		final Set<IInstallableUnit> content;
+
+		final Set<IInstallableUnit> symlinks;
+
+		private long size = -1;
+
+		DropinContents(Path installationPath, Set<IInstallableUnit> content,
+				Set<IInstallableUnit> symlinks) {
+			this.installationPath = installationPath;
+			this.content = content;
+			this.symlinks = symlinks;
+		}
+
+		/**
+		 * @return approximate number of bytes to be written for this dropin
+		 */
+		long getSize() {
+			if (size < 0) {
+				size = 0;
+				for (IInstallableUnit unit : content) {
+					Path path = P2Utils.getPath(unit);
+					if (path != null && !unit.getArtifacts().isEmpty()) {
+						try (Stream<Path> files = Files.walk(path)) {
+							size += files.filter(Files::isRegularFile)
+									.mapToLong(p -> p.toFile().length()).sum();
+						} catch (IOException e) {
+							// Only used for scheduling
+						}
+					}
+				}
+			}
+			return size;
+		}
+	}
+
+	private void createMetapackages(
+			Map<String, Set<IInstallableUnit>> partialPackageMap) {
+		metapackages = new LinkedHashSet<>();
+		Set<IInstallableUnit> unprocesseduUnits = new LinkedHashSet<>(reactor);
+
+		for (Entry<String, Set<IInstallableUnit>> entry : partialPackageMap
+				.entrySet()) {
+			String name = entry.getKey();
+			Set<IInstallableUnit> contents = entry.getValue();
+			metapackages.add(Package.creeatePhysical(name, contents));
+			unprocesseduUnits.removeAll(contents);
+		}
+
+		for (IInstallableUnit unit : unprocesseduUnits) {
+			metapackages.add(Package.creeateVirtual(unit, false));
+		}
+	}
+
+	private void resolveDeps() {
+		reactorRequires = new LinkedHashMap<>();
+		unitCache = new LinkedHashSet<>();
+		resolutions = new HashMap<>();
+		int requirementCount = 0;
+		resolutionCache = cacheDir != null ? ResolutionCache.open(cacheDir,
+				getSystemStamp(), index) : null;
+
+		metapackageLookup = new LinkedHashMap<>();
+		for (Package metapackage : metapackages)
+			for (IInstallableUnit unit : metapackage.getContents())
+				metapackageLookup.put(unit, metapackage);
+
+		toProcess = new LinkedList<>(metapackages);
+		while (!toProcess.isEmpty()) {
+			// Packages are processed in waves of those queued so far. New
+			// packages are appended to the queue, so the processing order is
+			// the same as if they were processed one by one.
+			if (parallelResolution)
+				prefetchResolutions(toProcess);
+
+			for (int wave = toProcess.size(); wave > 0; wave--) {
+				Package metapackage = toProcess.removeFirst();
+				for (IInstallableUnit iu : metapackage.getContents()) {
+					logger.debug("##### IU {}", iu);
+
+					Set<IInstallableUnit> requires = new LinkedHashSet<>();
+					reactorRequires.put(iu, requires);
+
+					for (IRequirement req : getRequirements(iu, ignoreOptional)) {
+						resolveRequirement(iu, req);
+						requirementCount++;
+					}
+				}
+			}
+		}
+
+		// Every requirement not found in the memo adds exactly one entry
+		logger.debug(
+				"Resolved {} requirements, {} distinct, memo hit rate {}%",
+				requirementCount, resolutions.size(), requirementCount == 0 ? 0
+						: 100 * (requirementCount - resolutions.size())
+								/ requirementCount);
+		if (resolutionCache != null)
+			resolutionCache.save();
+	}
+
+	private void resolveRequirement(IInstallableUnit iu, IRequirement req) {
+		logger.debug("    Requires: {}", req);
+		RequirementResolutionEvent event = Events.AVAILABLE ? new RequirementResolutionEvent()
+				: null;
+		if (event != null)
+			event.begin();
+
+		Resolution resolution = resolutions.get(req);
+		boolean memoized = resolution != null;
+		if (resolution == null) {
+			resolution = findProviders(req);
+			resolutions.put(req, resolution);
+		}
+
+		// Which edges are generated depends on where the match was found
+		List<IInstallableUnit> matches = resolution.getMatches();
+		Source source = resolution.getSource();
+		if (event != null)
+			event.commit(iu, req, source, matches.size(), memoized);
+		if (source != null) {
+			switch (source) {
+			case REACTOR:
+				tryResolveRequirementFrom(iu, req, matches, source,
+						reactor.contains(iu), true);
+				return;
+			case PLATFORM:
+			case META:
+				tryResolveRequirementFrom(iu, req, matches, source, false,
+						false);
+				return;
+			case INTERNAL:
+				tryResolveRequirementFrom(iu, req, matches, source, false, true);
+				return;
+			case EXTERNAL:
+				tryResolveRequirementFrom(iu, req, matches, source, true, true);
+				return;
+			}
+		}
+
+		if (req.getMin() == 0)
+			logger.info("Unable to satisfy optional dependency from {} to {}",
+					iu, req);
+		else
+			logger.warn("Unable to satisfy dependency from {} to {}", iu, req);
+	}
+
+	/**
+	 * Find providers of all requirements of given packages that are not
+	 * memoized yet, in parallel. Finding providers does not depend on the
+	 * dependency graph, so only memoized resolutions are shared with the
+	 * sequential pass, which then builds the graph in the usual order.
+	 */
+	private void prefetchResolutions(Collection<Package> packages) {
+		Set<IRequirement> pending = new LinkedHashSet<>();
+		for (Package metapackage : packages)
+			for (IInstallableUnit iu : metapackage.getContents())
+				for (IRequirement req : getRequirements(iu, ignoreOptional))
+					if (!resolutions.containsKey(req))
+						pending.add(req);
+
+		List<IRequirement> requirements = new ArrayList<>(pending);
+		List<Resolution> results = P2Utils.parallelMap(requirements,
+				this::findProviders);
+		for (int i = 0; i < requirements.size(); i++)
+			resolutions.put(requirements.get(i), results.get(i));
+	}
+
+	/**
+	 * Find units satisfying a requirement. Reactor units are preferred over
+	 * system units, which are preferred over JRE units.
+	 */
+	private Resolution findProviders(IRequirement req) {
+		List<IInstallableUnit> matches = reactorIndex.getProviders(req);
+		if (!matches.isEmpty())
+			return new Resolution(Source.REACTOR, matches);
+
+		// System units are looked up in platform, internal and external tiers
+		// in that order, only the first tier providing a match is used
+		Providers providers = resolutionCache != null ? resolutionCache
+				.findProviders(req) : index.findProviders(req);
+		if (providers != null)
+			return new Resolution(Source.valueOf(providers.getTier().name()),
+					providers.getUnits());
+
+		matches = JreUnits.get(null, cacheDir).getIndex().getProviders(req);
+		if (!matches.isEmpty())
+			return new Resolution(Source.META, matches);
+
+		return Resolution.UNRESOLVED;
+	}
+
+	/**
+	 * @param matches
+	 *            Units satisfying the requirement, in
+	 *            {@link CapabilityIndex#PROVIDER_ORDER}.
+	 */
+	private boolean tryResolveRequirementFrom(IInstallableUnit iu,
+			IRequirement req, List<IInstallableUnit> matches, Source desc,
+			boolean generateDep, boolean generateReq) {
+		if (matches.isEmpty())
+			return false;
+
+		IInstallableUnit match = null;
+		if (matches.size() > 1) {
+		    logger.warn(
+		            "More than one {} unit satisfies dependency from {} to {}",
+		            desc, iu, req);
+
+			for (IInstallableUnit u : matches) {
+				if (unitCache.contains(u)) {
+					match = u;
+					break;
+				}
+			}
+		}
+		if (match == null)
+			match = matches.get(0);
+
+		unitCache.add(match);
+		logger.debug("      => {} ({})", match, desc);
+
+		if (generateDep) {
+		    Package dep = metapackageLookup.get(match);
+		    if (dep == null) {
+		        dep = Package.creeateVirtual(match, true);
+		        metapackageLookup.put(match, dep);
+		        toProcess.add(dep);
+		        metapackages.add(dep);
+		    }
+		    Package metapackage = metapackageLookup.get(iu);
+		    metapackage.addDependency(dep);
+		}
+
+		if (generateReq) {
+			Set<IInstallableUnit> requires = reactorRequires.get(iu);
+			requires.add(match);
+		}
+
+		return true;
+	}
+
+	private static Collection<IRequirement> getRequirements(IInstallableUnit iu, boolean ignoreOptional) {
+		List<IRequirement> requirements = new ArrayList<>(
+				iu.getRequirements());
+		requirements.addAll(iu.getMetaRequirements());
+
+		if (iu instanceof IInstallableUnitFragment) {
+			IInstallableUnitFragment fragment = (IInstallableUnitFragment) iu;
+			requirements.addAll(fragment.getHost());
+		}
+
+		for (Iterator<IRequirement> iterator = requirements.iterator(); iterator
+				.hasNext();) {
+			IRequirement req = iterator.next();
+			if (req.getMax() == 0 || (ignoreOptional && req.getMin() == 0))
+				iterator.remove();
+		}
+
+		return requirements;
+	}
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.p2.core.ProvisionException;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.publisher.IPublisherInfo;
+import org.eclipse.equinox.p2.publisher.IPublisherResult;
+import org.eclipse.equinox.p2.publisher.PublisherInfo;
+import org.eclipse.equinox.p2.publisher.PublisherResult;
+import org.eclipse.equinox.p2.publisher.actions.JREAction;
+import org.eclipse.equinox.p2.query.IQueryResult;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.fedoraproject.p2.CapabilityIndex;
+import org.fedoraproject.p2.P2Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Installable units describing an execution environment profile of the
+ * running JVM, as generated by {@link JREAction}. Units are generated once per
+ * JVM and profile and shared by all installations in the process. If a cache
+ * directory is given they are also persisted there, keyed by JVM identity and
+ * version of the installer, so that later runs on the same JVM can skip
+ * generating them.
+ */
+class JreUnits {
+	private static final Logger logger = LoggerFactory
+			.getLogger(JreUnits.class);
+
+	private static final Map<String, JreUnits> cache = new ConcurrentHashMap<>();
+
+	private final Set<IInstallableUnit> units;
+
+	private final CapabilityIndex index;
+
+	private JreUnits(Set<IInstallableUnit> units) {
+		this.units = units;
+		this.index = new CapabilityIndex(units);
+	}
+
+	public Set<IInstallableUnit> getUnits() {
+		return units;
+	}
+
+	public CapabilityIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * @param profile
+	 *            name of execution environment profile, or {@code null} for
+	 *            the profile of the running JVM
+	 * @param cacheDir
+	 *            directory to persist units in, or {@code null}
+	 */
+	public static JreUnits get(String profile, Path cacheDir) {
+		String key = getKey(profile);
+		return cache.computeIfAbsent(key, k -> new JreUnits(load(k, profile,
+				cacheDir)));
+	}
+
+	/**
+	 * @return string identifying the running JVM, given profile and the
+	 *         installer generating units
+	 */
+	static String getKey(String profile) {
+		return Stream
+				.of("java.home", "java.vendor", "java.vm.name",
+						"java.runtime.version")
+				.map(System::getProperty)
+				.collect(Collectors.joining("|", "", "|" + profile + "|"
+						+ CacheDirectory.TAG));
+	}
+
+	private static Set<IInstallableUnit> load(String key, String profile,
+			Path cacheDir) {
+		if (cacheDir == null)
+			return generate(profile);
+
+		Path location = cacheDir.resolve("jre").resolve(P2Utils.digest(key));
+		if (Files.isDirectory(location)) {
+			try {
+				Set<IInstallableUnit> units = Repository.load(location)
+						.getAllUnits();
+				logger.debug("Loaded JRE units from {}", location);
+				return units;
+			} catch (ProvisionException e) {
+				logger.debug("Unable to load JRE units from {}, regenerating",
+						location, e);
+			}
+		}
+
+		Set<IInstallableUnit> units = generate(profile);
+		try {
+			store(location, units);
+			logger.debug("Stored JRE units in {}", location);
+		} catch (IOException | ProvisionException e) {
+			logger.warn("Unable to store JRE units in {}", location, e);
+		}
+		return units;
+	}
+
+	private static Set<IInstallableUnit> generate(String profile) {
+		IPublisherInfo info = new PublisherInfo();
+		IPublisherResult result = new PublisherResult();
+		JREAction jreAction = new JREAction(profile);
+		jreAction.perform(info, result, new NullProgressMonitor());
+		IQueryResult<IInstallableUnit> units = result.query(
+				QueryUtil.createIUAnyQuery(), new NullProgressMonitor());
+		return units.toUnmodifiableSet();
+	}
+
+	private static void store(Path location, Set<IInstallableUnit> units)
+			throws IOException, ProvisionException {
+		// Write to a temporary directory first so that concurrent runs never
+		// see a partially written repository
+		Files.createDirectories(location.getParent());
+		Path temp = Files.createTempDirectory(location.getParent(), "tmp-");
+		try {
+			Repository.create(temp).getMetadataRepository()
+					.addInstallableUnits(units);
+			Files.move(temp, location, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			if (Files.exists(temp))
+				P2Utils.delete(temp.toFile());
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Red Hat Inc.
+ * Copyright (c) 2014, 2026 Red Hat Inc.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,18 +10,25 @@
  *******************************************************************************/
 package org.fedoraproject.p2.installer.impl;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.Set;
-import java.util.Stack;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.fedoraproject.p2.jfr.ComponentMergeEvent;
+import org.fedoraproject.p2.jfr.Events;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +50,12 @@ public class Package {
 
 	private int lowlink;
 
+	private boolean onStack;
+
+	private int position;
+
+	private boolean isQueued;
+
 	private boolean isSplittable;
 
 	public static Package creeatePhysical(String name,
@@ -136,76 +149,170 @@ public class Package {
 		}
 	}
 
-	private static Set<Package> splittable(Set<Package> V) {
-		return V.stream().filter(v -> v.isSplittable && v.revdeps.size() > 1).collect(Collectors.toSet());
-	}
-
+	/**
+	 * Split each splittable package required by more than one package, so
+	 * that every copy is required by exactly one. Packages are visited in
+	 * topological order, so that all copies of a package's dependents exist
+	 * before the package itself is split, and no package needs to be split
+	 * twice. Dependency graph must be acyclic, as it is after
+	 * {@link #detectStrongComponents}.
+	 */
 	public static void splitSplittable(Set<Package> V) {
-		Set<Package> Vs = new LinkedHashSet<>(splittable(V));
-		while (!Vs.isEmpty()) {
-			Iterator<Package> vi = Vs.iterator();
-			Package v = vi.next();
-			vi.remove();
-			while (v.revdeps.size() > 1) {
-				V.add(v.split());
-				Vs.addAll(splittable(v.deps));
+		for (Package v : topologicalOrder(V)) {
+			if (v.isSplittable) {
+				while (v.revdeps.size() > 1) {
+					V.add(v.split());
+				}
 			}
 		}
 	}
 
-	public static void detectStrongComponents(Set<Package> V) {
-		AtomicInteger index = new AtomicInteger(0);
-		Stack<Package> S = new Stack<>();
-
-		for (Package v : new LinkedHashSet<>(V)) {
-			if (v.index == 0)
-				strongconnect(V, v, index, S);
+	/**
+	 * @return packages ordered so that each package precedes its dependencies
+	 */
+	private static List<Package> topologicalOrder(Set<Package> V) {
+		List<Package> postorder = new ArrayList<>(V.size());
+		Set<Package> visited = new HashSet<>();
+		Deque<Package> path = new ArrayDeque<>();
+		Deque<Iterator<Package>> pathDeps = new ArrayDeque<>();
+
+		for (Package u : V) {
+			if (!visited.add(u))
+				continue;
+			path.push(u);
+			pathDeps.push(u.deps.iterator());
+
+			while (!path.isEmpty()) {
+				Iterator<Package> deps = pathDeps.peek();
+				if (deps.hasNext()) {
+					Package w = deps.next();
+					if (visited.add(w)) {
+						path.push(w);
+						pathDeps.push(w.deps.iterator());
+					}
+					continue;
+				}
+				postorder.add(path.pop());
+				pathDeps.pop();
+			}
 		}
-	}
 
-	private static void strongconnect(Set<Package> V, Package v,
-			AtomicInteger index, Stack<Package> S) {
-		v.index = v.lowlink = index.incrementAndGet();
-		S.push(v);
+		Collections.reverse(postorder);
+		return postorder;
+	}
 
-		for (Package w : new LinkedHashSet<>(v.deps)) {
-			if (w.index == 0) {
-				strongconnect(V, w, index, S);
+	/**
+	 * Merge each strongly connected component of the dependency graph into a
+	 * single package, using Tarjan's algorithm. Depth-first search is
+	 * iterative, so that long dependency chains don't overflow the stack.
+	 * Components are merged only after the search is complete, in the order
+	 * in which they were found, which yields the same packages as merging
+	 * each component as soon as it is found.
+	 */
+	public static void detectStrongComponents(Set<Package> V) {
+		int index = 0;
+		Deque<Package> S = new ArrayDeque<>();
+		Deque<Package> path = new ArrayDeque<>();
+		Deque<Iterator<Package>> pathDeps = new ArrayDeque<>();
+		List<List<Package>> components = new ArrayList<>();
+
+		for (Package u : V) {
+			if (u.index != 0)
+				continue;
+
+			u.index = u.lowlink = ++index;
+			u.onStack = true;
+			S.push(u);
+			path.push(u);
+			pathDeps.push(u.deps.iterator());
+
+			while (!path.isEmpty()) {
+				Package v = path.peek();
+				Iterator<Package> deps = pathDeps.peek();
+				if (deps.hasNext()) {
+					Package w = deps.next();
+					if (w.index == 0) {
+						w.index = w.lowlink = ++index;
+						w.onStack = true;
+						S.push(w);
+						path.push(w);
+						pathDeps.push(w.deps.iterator());
+					} else if (w.onStack) {
+						v.lowlink = Math.min(v.lowlink, w.index);
+					}
+					continue;
+				}
 
-				v.lowlink = Math.min(v.lowlink, w.lowlink);
-			} else if (S.contains(w)) {
-				v.lowlink = Math.min(v.lowlink, w.index);
+				path.pop();
+				pathDeps.pop();
+				if (!path.isEmpty())
+					path.peek().lowlink = Math.min(path.peek().lowlink,
+							v.lowlink);
+
+				if (v.lowlink == v.index) {
+					Package w = S.pop();
+					w.onStack = false;
+					if (w != v) {
+						// Root first, followed by other members in stack order
+						List<Package> component = new ArrayList<>();
+						component.add(v);
+						do {
+							component.add(w);
+							w = S.pop();
+							w.onStack = false;
+						} while (w != v);
+						components.add(component);
+					}
+				}
 			}
 		}
 
-		if (v.lowlink == v.index) {
-			Set<String> cycles = new LinkedHashSet<>();
-			if (!v.physical.isEmpty()) {
-				cycles.add(v.physical.keySet().iterator().next());
-			}
-			for (Package w; (w = S.pop()) != v; V.remove(w)) {
-				v.merge(w);
-				if (!w.physical.isEmpty()) {
-					cycles.add(w.physical.keySet().iterator().next());
-				}
+		for (List<Package> component : components)
+			mergeComponent(V, component);
+	}
+
+	private static void mergeComponent(Set<Package> V, List<Package> component) {
+		ComponentMergeEvent event = Events.AVAILABLE ? new ComponentMergeEvent()
+				: null;
+		if (event != null)
+			event.begin();
+		Package v = component.get(0);
+		Set<String> cycles = new LinkedHashSet<>();
+		if (!v.physical.isEmpty()) {
+			cycles.add(v.physical.keySet().iterator().next());
+		}
+		for (Package w : component.subList(1, component.size())) {
+			v.merge(w);
+			V.remove(w);
+			if (!w.physical.isEmpty()) {
+				cycles.add(w.physical.keySet().iterator().next());
 			}
-			if (cycles.size() > 1) {
-				logger.warn("###################################");
-				logger.warn("###################################");
-				logger.warn("Cycle detected among the following packages :");
-				StringBuffer cycleNames = new StringBuffer();
-				for (String name : cycles) {
-						cycleNames.append(",");
-						cycleNames.append(name);
-				}
-				logger.warn(cycleNames.substring(1));
-				logger.warn("Please review mappings and dependencies.");
-				logger.warn("###################################");
-				logger.warn("###################################");
+		}
+		if (event != null)
+			event.commit(component.size(), cycles);
+		if (cycles.size() > 1) {
+			logger.warn("###################################");
+			logger.warn("###################################");
+			logger.warn("Cycle detected among the following packages :");
+			StringBuffer cycleNames = new StringBuffer();
+			for (String name : cycles) {
+					cycleNames.append(",");
+					cycleNames.append(name);
 			}
+			logger.warn(cycleNames.substring(1));
+			logger.warn("Please review mappings and dependencies.");
+			logger.warn("###################################");
+			logger.warn("###################################");
 		}
 	}
 
+	/**
+	 * Merge each virtual package into the only package which requires it, or
+	 * into the main package if no package requires it. Merging a package
+	 * can only lower number of packages requiring its dependencies, so only
+	 * those are checked again after each merge. Packages are merged in the
+	 * order in which they appear in the set, earliest first.
+	 */
 	public static void expandVirtualPackages(Set<Package> metapackages,
 			String mainName) {
 		Package main = null;
@@ -214,52 +321,61 @@ public class Package {
 				main = w;
 		}
 
-		Set<Package> unmerged = new LinkedHashSet<>();
-
-		main_loop: for (;;) {
-			unmerged.clear();
-
-			for (Iterator<Package> iw = metapackages.iterator(); iw.hasNext();) {
-				Package w = iw.next();
-				if (w.virtual.isEmpty())
-					continue;
-
-				if (w.revdeps.isEmpty()) {
-					if (main != null) {
-						main.merge(w);
-						iw.remove();
-					} else {
-						w.physical
-								.put(mainName, new LinkedHashSet<>(w.virtual));
-						w.virtual.clear();
-						main = w;
-					}
+		int position = 0;
+		for (Package w : metapackages)
+			w.position = position++;
+		Queue<Package> mergeable = new PriorityQueue<>(
+				Comparator.comparingInt(w -> w.position));
+		for (Package w : metapackages) {
+			if (!w.virtual.isEmpty() && w.revdeps.size() <= 1) {
+				w.isQueued = true;
+				mergeable.add(w);
+			}
+		}
 
-					continue main_loop;
+		while (!mergeable.isEmpty()) {
+			Package w = mergeable.remove();
+
+			if (w.revdeps.isEmpty()) {
+				if (main != null) {
+					main.merge(w);
+					metapackages.remove(w);
+				} else {
+					w.physical.put(mainName, new LinkedHashSet<>(w.virtual));
+					w.virtual.clear();
+					main = w;
 				}
+			} else {
+				metapackages.remove(w);
+				w.revdeps.iterator().next().merge(w);
+			}
 
-				if (w.revdeps.size() == 1) {
-					iw.remove();
-					for (Package v : w.revdeps) {
-						v.merge(w);
-					}
-
-					continue main_loop;
+			// Number of packages requiring a package never grows here, so each
+			// package is queued at most once
+			for (Package v : w.deps) {
+				if (!v.virtual.isEmpty() && v.revdeps.size() <= 1
+						&& !v.isQueued) {
+					v.isQueued = true;
+					mergeable.add(v);
 				}
-
-				unmerged.add(w);
 			}
+		}
 
-			if (unmerged.isEmpty())
-				return;
+		Set<Package> unmerged = new LinkedHashSet<>();
+		for (Package w : metapackages) {
+			if (!w.virtual.isEmpty())
+				unmerged.add(w);
+		}
 
-			for (Package metapackage : unmerged) {
-				metapackage.dump();
-			}
+		if (unmerged.isEmpty())
+			return;
 
-			throw new RuntimeException("There are " + unmerged.size()
-					+ " unmerged virtual metapackages");
+		for (Package metapackage : unmerged) {
+			metapackage.dump();
 		}
+
+		throw new RuntimeException("There are " + unmerged.size()
+				+ " unmerged virtual metapackages");
 	}
 
 	private void dumpContents() {
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.equinox.p2.core.ProvisionException;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.repository.artifact.ArtifactDescriptorQuery;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactDescriptor;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
+import org.fedoraproject.p2.P2Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * On-disk cache of units and artifact descriptors published for individual
+ * bundles and features, persisted across runs. Each entry is a p2 repository
+ * keyed by version of the installer and location and contents of one bundle
+ * or feature, holding the units that {@link Director#publish} created for
+ * it, including their path properties. Only the most recently used entries
+ * are kept.
+ */
+class PublishCache {
+	private static final Logger logger = LoggerFactory
+			.getLogger(PublishCache.class);
+
+	/**
+	 * Maximal number of entries, each of which holds units of one artifact.
+	 */
+	private static final int MAX_ENTRIES = 4096;
+
+	/**
+	 * Same as {@link Director#publish}, but only bundles and features that
+	 * are not in the cache are actually published. Units of cached ones are
+	 * added to the repository together with their artifact descriptors, but
+	 * without artifact contents. Either way, units are added in the order of
+	 * artifacts.
+	 */
+	public static void publish(Path cacheDir, Repository repository,
+			Collection<Path> bundles, Collection<Path> features)
+			throws ProvisionException, IOException {
+		Map<Path, Path> entries = new LinkedHashMap<>();
+		List<Path> newBundles = new ArrayList<>();
+		List<Path> newFeatures = new ArrayList<>();
+		for (Path bundle : bundles) {
+			entries.put(bundle, getEntry(cacheDir, bundle, false));
+			newBundles.add(bundle);
+		}
+		for (Path feature : features) {
+			entries.put(feature, getEntry(cacheDir, feature, true));
+			newFeatures.add(feature);
+		}
+
+		// Only artifacts without usable cache entries are published
+		Map<Path, Repository> cached = new LinkedHashMap<>();
+		for (Entry<Path, Path> entry : entries.entrySet()) {
+			if (Files.isDirectory(entry.getValue())) {
+				try {
+					// Not kept by repository managers, which would otherwise
+					// grow with every cached artifact in a long-running process
+					cached.put(entry.getKey(),
+							Repository.load(entry.getValue(), true));
+					newBundles.remove(entry.getKey());
+					newFeatures.remove(entry.getKey());
+				} catch (ProvisionException e) {
+					logger.debug("Unable to load cached units from {}",
+							entry.getValue(), e);
+				}
+			}
+		}
+		logger.debug("Publish cache: {} hits, {} misses", cached.size(),
+				newBundles.size() + newFeatures.size());
+
+		Repository published = Repository.createInMemory();
+		if (!newBundles.isEmpty() || !newFeatures.isEmpty()) {
+			Director.publish(published, newBundles, newFeatures);
+			store(published, entries);
+			CacheDirectory.evict(getDirectory(cacheDir), MAX_ENTRIES);
+		}
+
+		// Add units in artifact order, no matter whether they were cached
+		Set<IInstallableUnit> publishedUnits = new LinkedHashSet<>(
+				published.getAllUnits());
+		Map<Path, Set<IInstallableUnit>> unitsByPath = groupByPath(publishedUnits);
+		for (Path path : entries.keySet()) {
+			Repository entry = cached.get(path);
+			if (entry != null) {
+				addUnits(repository, entry, entry.getAllUnits());
+				CacheDirectory.touch(entries.get(path));
+			} else if (unitsByPath.containsKey(path)) {
+				addUnits(repository, published, unitsByPath.get(path));
+				publishedUnits.removeAll(unitsByPath.get(path));
+			}
+		}
+		// Units not attributable to any artifact
+		addUnits(repository, published, publishedUnits);
+	}
+
+	/**
+	 * Add given units of source repository to destination repository,
+	 * together with their artifact descriptors.
+	 */
+	private static void addUnits(Repository destination, Repository source,
+			Collection<IInstallableUnit> units) {
+		List<IArtifactDescriptor> descriptors = new ArrayList<>();
+		for (IInstallableUnit unit : units)
+			for (IArtifactKey key : unit.getArtifacts())
+				descriptors.addAll(Arrays.asList(source.getArtifactRepository()
+						.getArtifactDescriptors(key)));
+		destination.getMetadataRepository().addInstallableUnits(units);
+		destination.getArtifactRepository().addDescriptors(
+				descriptors.toArray(new IArtifactDescriptor[0]), null);
+	}
+
+	/**
+	 * @return units with path property grouped by path, in the order of
+	 *         given units
+	 */
+	private static Map<Path, Set<IInstallableUnit>> groupByPath(
+			Collection<IInstallableUnit> units) {
+		Map<Path, Set<IInstallableUnit>> unitsByPath = new LinkedHashMap<>();
+		for (IInstallableUnit unit : units) {
+			Path path = P2Utils.getPath(unit);
+			if (path != null)
+				unitsByPath.computeIfAbsent(path, p -> new LinkedHashSet<>())
+						.add(unit);
+		}
+		return unitsByPath;
+	}
+
+	private static Path getEntry(Path cacheDir, Path path, boolean isFeature)
+			throws IOException {
+		String key = "installer " + CacheDirectory.TAG + " "
+				+ (isFeature ? "feature " : "bundle ") + path + " "
+				+ P2Utils.digest(path);
+		return getDirectory(cacheDir).resolve(P2Utils.digest(key));
+	}
+
+	private static Path getDirectory(Path cacheDir) {
+		return cacheDir.resolve("publish");
+	}
+
+	/**
+	 * Store units of newly published artifacts. Failure to do so is not
+	 * fatal.
+	 */
+	private static void store(Repository repository, Map<Path, Path> entries) {
+		for (IInstallableUnit unit : repository.getAllUnits()) {
+			// Host localization fragments are dropped by the installer anyway,
+			// but any other unit not attributable to a single artifact would
+			// be lost on cache hit
+			if (P2Utils.getPath(unit) == null
+					&& !unit.getId().endsWith("translated_host_properties")) {
+				logger.debug("Not caching publisher results: {} has no path",
+						unit);
+				return;
+			}
+		}
+		Map<Path, Set<IInstallableUnit>> unitsByPath = groupByPath(repository
+				.getAllUnits());
+
+		for (Entry<Path, Set<IInstallableUnit>> entry : unitsByPath.entrySet()) {
+			Path location = entries.get(entry.getKey());
+			if (location == null || Files.isDirectory(location))
+				continue;
+
+			Path temp = null;
+			try {
+				// Write to a temporary directory first so that concurrent runs
+				// never see a partially written repository
+				Files.createDirectories(location.getParent());
+				temp = Files.createTempDirectory(location.getParent(), "tmp-");
+				addUnits(Repository.create(temp), repository, entry.getValue());
+				Files.move(temp, location, StandardCopyOption.ATOMIC_MOVE);
+			} catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+				// Stored concurrently by another run
+			} catch (IOException | ProvisionException e) {
+				logger.warn("Unable to store published units in {}", location,
+						e);
+			} finally {
+				if (temp != null && Files.exists(temp))
+					P2Utils.delete(temp.toFile());
+			}
+		}
+	}
+}
@@ -19,6 +19,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
 import org.eclipse.equinox.p2.core.ProvisionException;
@@ -40,6 +41,8 @@ public class Repository {
 
 	private static Path tempDir;
 
+	private static final AtomicInteger inMemoryCounter = new AtomicInteger();
+
 	private final Path location;
 
 	private final IArtifactRepository artifactRepository;
@@ -59,6 +62,20 @@ public class Repository {
 		return create(tempDirectory);
 	}
 
+	/**
+	 * Create a transient repository that is held in memory. Only artifact
+	 * descriptors are recorded, not artifact contents. Such repository has no
+	 * location on disk.
+	 */
+	public static Repository createInMemory() throws ProvisionException {
+		IProvisioningAgent agent = P2Utils.getAgent();
+		URI uri = URI.create("memory:/xmvn-p2-repo/"
+				+ inMemoryCounter.incrementAndGet());
+
+		return new Repository(null, new InMemoryArtifactRepository(agent, uri),
+				new InMemoryMetadataRepository(agent, uri));
+	}
+
 	public static Repository create(Path location) throws ProvisionException {
 		IProvisioningAgent agent = P2Utils.getAgent();
 		URI uri = location.toUri();
@@ -74,18 +91,32 @@ public class Repository {
 	}
 
 	public static Repository load(Path location) throws ProvisionException {
+		return load(location, false);
+	}
+
+	/**
+	 * @param removeFromManager
+	 *            whether to remove loaded repositories from p2 repository
+	 *            managers, so that they are not kept for the life of the
+	 *            process
+	 */
+	public static Repository load(Path location, boolean removeFromManager)
+			throws ProvisionException {
 		IProvisioningAgent agent = P2Utils.getAgent();
 		URI uri = location.toUri();
 
 		IArtifactRepository artifactRepository = Publisher
-				.loadArtifactRepository(agent, uri, false, false);
+				.loadArtifactRepository(agent, uri, false, removeFromManager);
 
 		IMetadataRepository metadataRepository = Publisher
-				.loadMetadataRepository(agent, uri, false, false);
+				.loadMetadataRepository(agent, uri, false, removeFromManager);
 
 		return new Repository(location, artifactRepository, metadataRepository);
 	}
 
+	/**
+	 * @return repository location, or {@code null} for in-memory repositories
+	 */
 	public Path getLocation() {
 		return location;
 	}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+
+/**
+ * Units satisfying a requirement together with the place they were found in.
+ * Resolutions depend only on the requirement, not on the unit declaring it,
+ * so they can be shared between all units having equal requirements.
+ */
+class Resolution {
+	enum Source {
+		REACTOR, PLATFORM, INTERNAL, EXTERNAL, META;
+
+		@Override
+		public String toString() {
+			return name().toLowerCase();
+		}
+	}
+
+	static final Resolution UNRESOLVED = new Resolution(null,
+			Collections.emptyList());
+
+	private final Source source;
+
+	private final List<IInstallableUnit> matches;
+
+	Resolution(Source source, List<IInstallableUnit> matches) {
+		this.source = source;
+		this.matches = matches;
+	}
+
+	/**
+	 * @return where matches were found, or {@code null} if the requirement
+	 *         could not be satisfied
+	 */
+	Source getSource() {
+		return source;
+	}
+
+	/**
+	 * @return matching units, best candidate first
+	 */
+	List<IInstallableUnit> getMatches() {
+		return matches;
+	}
+}
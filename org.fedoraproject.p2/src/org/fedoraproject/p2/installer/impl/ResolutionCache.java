@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IRequirement;
+import org.eclipse.equinox.p2.metadata.expression.IMatchExpression;
+import org.fedoraproject.p2.BundleTier;
+import org.fedoraproject.p2.IFedoraBundleRepository;
+import org.fedoraproject.p2.Providers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * On-disk cache of system providers of requirements, persisted across runs.
+ * Each entry records the tier and the id and version of every unit that
+ * satisfied a requirement, or that no system unit did. Cache files are named
+ * after version of the installer and the stamp {@link SystemIndexCache} takes
+ * of system bundle locations, so any change to the installer or the system
+ * bundle set makes previous entries unreachable without indexing any tier.
+ * Files of the most recently used fingerprints are kept, so that switching
+ * between system configurations does not invalidate their entries.
+ * <p>
+ * Providers may be looked up concurrently.
+ */
+class ResolutionCache {
+	private static final Logger logger = LoggerFactory
+			.getLogger(ResolutionCache.class);
+
+	private static final String NONE = "none";
+
+	/**
+	 * Maximal number of cache files, one per fingerprint.
+	 */
+	private static final int MAX_FILES = 16;
+
+	private final IFedoraBundleRepository index;
+
+	private final Path file;
+
+	private final Properties entries = new Properties();
+
+	private final Map<BundleTier, Map<String, IInstallableUnit>> unitLookup = new EnumMap<>(
+			BundleTier.class);
+
+	private volatile boolean modified;
+
+	private final AtomicInteger hits = new AtomicInteger();
+
+	private final AtomicInteger misses = new AtomicInteger();
+
+	private ResolutionCache(IFedoraBundleRepository index, Path file) {
+		this.index = index;
+		this.file = file;
+	}
+
+	/**
+	 * Open resolution cache for given system bundle repository.
+	 *
+	 * @param systemStamp
+	 *            stamp of system bundle locations, as taken by
+	 *            {@link SystemIndexCache#stamp}
+	 */
+	public static ResolutionCache open(Path cacheDir, String systemStamp,
+			IFedoraBundleRepository index) {
+		Path file = cacheDir.resolve("resolution").resolve(
+				CacheDirectory.TAG + "-" + systemStamp + ".properties");
+		ResolutionCache cache = new ResolutionCache(index, file);
+		if (Files.isRegularFile(file)) {
+			try (InputStream stream = Files.newInputStream(file)) {
+				cache.entries.load(stream);
+				CacheDirectory.touch(file);
+				logger.debug("Loaded {} cached resolutions from {}",
+						cache.entries.size(), file);
+			} catch (IOException e) {
+				logger.warn("Unable to read resolution cache {}", file, e);
+				cache.entries.clear();
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Same as {@link IFedoraBundleRepository#findProviders}, but answered from
+	 * the cache when possible.
+	 */
+	public Providers findProviders(IRequirement requirement) {
+		String key = getKey(requirement);
+		String value = entries.getProperty(key);
+		if (value != null) {
+			Providers providers = decode(value);
+			if (providers != null || value.equals(NONE)) {
+				hits.incrementAndGet();
+				return providers;
+			}
+		}
+
+		misses.incrementAndGet();
+		Providers providers = index.findProviders(requirement);
+		entries.setProperty(key, encode(providers));
+		modified = true;
+		return providers;
+	}
+
+	/**
+	 * Write new entries back to disk, evicting least recently used caches for
+	 * other fingerprints.
+	 */
+	public synchronized void save() {
+		logger.debug("Resolution cache: {} hits, {} misses", hits, misses);
+		if (!modified)
+			return;
+
+		try {
+			Path dir = file.getParent();
+			Files.createDirectories(dir);
+			Path temp = Files.createTempFile(dir, "tmp-", ".properties");
+			try (OutputStream stream = Files.newOutputStream(temp)) {
+				entries.store(stream, null);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			modified = false;
+			CacheDirectory.evict(dir, MAX_FILES);
+		} catch (IOException e) {
+			logger.warn("Unable to write resolution cache {}", file, e);
+		}
+	}
+
+	private static String getKey(IRequirement requirement) {
+		IMatchExpression<IInstallableUnit> matches = requirement.getMatches();
+		return matches + " " + Arrays.toString(matches.getParameters());
+	}
+
+	private static String encode(Providers providers) {
+		if (providers == null)
+			return NONE;
+
+		StringBuilder sb = new StringBuilder(providers.getTier().toString());
+		for (IInstallableUnit unit : providers.getUnits())
+			sb.append(' ').append(unit.getId()).append('/')
+					.append(unit.getVersion());
+		return sb.toString();
+	}
+
+	/**
+	 * @return decoded providers, or {@code null} if the value denotes no
+	 *         providers or refers to units which no longer exist
+	 */
+	private Providers decode(String value) {
+		String[] tokens = value.split(" ");
+		BundleTier tier;
+		try {
+			tier = BundleTier.valueOf(tokens[0].toUpperCase());
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+
+		Map<String, IInstallableUnit> units = getUnitLookup(tier);
+		List<IInstallableUnit> matches = new ArrayList<>(tokens.length - 1);
+		for (int i = 1; i < tokens.length; i++) {
+			IInstallableUnit unit = units.get(tokens[i]);
+			if (unit == null)
+				return null;
+			matches.add(unit);
+		}
+		return new Providers(tier, matches);
+	}
+
+	private synchronized Map<String, IInstallableUnit> getUnitLookup(
+			BundleTier tier) {
+		return unitLookup.computeIfAbsent(tier, t -> {
+			Map<String, IInstallableUnit> map = new HashMap<>();
+			for (IInstallableUnit unit : getUnits(t))
+				map.put(unit.getId() + "/" + unit.getVersion(), unit);
+			return map;
+		});
+	}
+
+	private Set<IInstallableUnit> getUnits(BundleTier tier) {
+		switch (tier) {
+		case PLATFORM:
+			return index.getPlatformUnits();
+		case INTERNAL:
+			return index.getInternalUnits();
+		default:
+			return index.getExternalUnits();
+		}
+	}
+}
@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+
+import org.fedoraproject.p2.P2Utils;
+import org.fedoraproject.p2.installer.Dropin;
+import org.fedoraproject.p2.installer.EclipseArtifact;
+import org.fedoraproject.p2.installer.EclipseInstallationRequest;
+import org.fedoraproject.p2.installer.EclipseInstallationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * On-disk cache of complete installation results, persisted across runs.
+ * Entries are keyed by version of the installer, contents of all reactor
+ * artifacts, options of the request, SCL configuration, the running JVM and a
+ * stamp of system bundle locations, so that a hit yields exactly what a full
+ * installation would. Each entry holds copies of dropin trees together with
+ * dropin and provide metadata. Only the most recently used entries are kept.
+ */
+class ResultCache {
+	private static final Logger logger = LoggerFactory
+			.getLogger(ResultCache.class);
+
+	private static final String METADATA = "result.properties";
+
+	private static final String ROOT = "root";
+
+	/**
+	 * Maximal number of entries, each of which holds whole dropin trees.
+	 */
+	private static final int MAX_ENTRIES = 32;
+
+	private final Path entry;
+
+	private ResultCache(Path entry) {
+		this.entry = entry;
+	}
+
+	/**
+	 * Open result cache entry for given installation request. All reactor
+	 * artifacts are hashed in order to compute the key.
+	 *
+	 * @param systemStamp
+	 *            stamp of system bundle locations, as taken by
+	 *            {@link SystemIndexCache#stamp}
+	 */
+	public static ResultCache open(Path cacheDir,
+			EclipseInstallationRequest request, List<Path> sclConfs,
+			String systemStamp) throws IOException {
+		List<String> lines = new ArrayList<>();
+		lines.add("installer " + CacheDirectory.TAG);
+		lines.add("main " + request.getMainPackageId());
+		lines.add("ignoreOptional " + request.ignoreOptional());
+		lines.add("dryRun " + (request.getBuildRoot() == null));
+		lines.add("jre " + JreUnits.getKey(null));
+		for (EclipseArtifact artifact : request.getArtifacts())
+			lines.add("artifact " + artifact.getPath() + " "
+					+ artifact.isFeature() + " " + artifact.isNative() + " "
+					+ artifact.getTargetPackage() + " "
+					+ P2Utils.digest(artifact.getPath()));
+		for (Path conf : sclConfs)
+			lines.add("scl " + conf + " "
+					+ (Files.exists(conf) ? P2Utils.digest(conf) : "none"));
+		lines.add("system " + systemStamp);
+
+		String key = P2Utils.digest(String.join("\n", lines));
+		return new ResultCache(cacheDir.resolve("results").resolve(key));
+	}
+
+	/**
+	 * Restore cached result of installation, if any. Dropin trees are copied
+	 * into the build root and artifacts of the request are updated the same
+	 * way as full installation would.
+	 *
+	 * @return restored result, or {@code null} on cache miss
+	 */
+	public EclipseInstallationResult restore(
+			EclipseInstallationRequest request) throws IOException {
+		Path file = entry.resolve(METADATA);
+		if (!Files.isRegularFile(file))
+			return null;
+
+		Properties metadata = new Properties();
+		try (InputStream stream = Files.newInputStream(file)) {
+			metadata.load(stream);
+		}
+		CacheDirectory.touch(entry);
+
+		Map<Path, EclipseArtifact> reactorMap = new LinkedHashMap<>();
+		for (EclipseArtifact artifact : request.getArtifacts())
+			reactorMap.put(artifact.getPath(), artifact);
+
+		// Validate the whole entry before touching any artifact
+		int dropinCount;
+		try {
+			dropinCount = Integer.parseInt(metadata.getProperty("dropins"));
+			for (int i = 0; i < dropinCount; i++) {
+				String prefix = "dropin." + i + ".";
+				int provideCount = Integer.parseInt(metadata
+						.getProperty(prefix + "provides"));
+				for (int j = 0; j < provideCount; j++) {
+					String path = metadata.getProperty(prefix + j + ".path");
+					if (path == null
+							|| !reactorMap.containsKey(Paths.get(path)))
+						throw new IllegalArgumentException(path);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			logger.warn("Ignoring invalid result cache entry {}", entry);
+			return null;
+		}
+
+		Set<Dropin> dropins = new LinkedHashSet<>();
+		for (int i = 0; i < dropinCount; i++) {
+			String prefix = "dropin." + i + ".";
+			Dropin dropin = new Dropin(metadata.getProperty(prefix + "id"),
+					Paths.get(metadata.getProperty(prefix + "path")));
+			dropins.add(dropin);
+
+			int provideCount = Integer.parseInt(metadata.getProperty(prefix
+					+ "provides"));
+			for (int j = 0; j < provideCount; j++) {
+				String providePrefix = prefix + j + ".";
+				EclipseArtifact provide = reactorMap.get(Paths.get(metadata
+						.getProperty(providePrefix + "path")));
+				provide.setId(metadata.getProperty(providePrefix + "id"));
+				provide.setVersion(metadata.getProperty(providePrefix
+						+ "version"));
+				provide.setInstalledPath(Paths.get(metadata
+						.getProperty(providePrefix + "installedPath")));
+				String names = metadata.getProperty(providePrefix
+						+ "properties");
+				if (!names.isEmpty())
+					for (String name : names.split(","))
+						provide.setProperty(name, metadata
+								.getProperty(providePrefix + "property." + name));
+				dropin.addProvide(provide);
+			}
+
+			if (request.getBuildRoot() != null) {
+				Path source = entry.resolve(ROOT).resolve(dropin.getPath());
+				if (Files.isDirectory(source))
+					copyTree(source,
+							request.getBuildRoot().resolve(dropin.getPath()));
+			}
+		}
+
+		return new EclipseInstallationResult(dropins);
+	}
+
+	/**
+	 * Store result of installation. Failure to do so is not fatal.
+	 */
+	public void store(EclipseInstallationRequest request,
+			EclipseInstallationResult result) {
+		if (Files.isDirectory(entry))
+			return;
+
+		Path temp = null;
+		try {
+			Files.createDirectories(entry.getParent());
+			// Write to a temporary directory first so that concurrent runs
+			// never see a partially written entry
+			temp = Files.createTempDirectory(entry.getParent(), "tmp-");
+
+			Properties metadata = new Properties();
+			metadata.setProperty("dropins",
+					Integer.toString(result.getDropins().size()));
+			int i = 0;
+			for (Dropin dropin : result.getDropins()) {
+				String prefix = "dropin." + i++ + ".";
+				metadata.setProperty(prefix + "id", dropin.getId());
+				metadata.setProperty(prefix + "path", dropin.getPath()
+						.toString());
+				metadata.setProperty(prefix + "provides",
+						Integer.toString(dropin.getOsgiProvides().size()));
+				int j = 0;
+				for (EclipseArtifact provide : dropin.getOsgiProvides()) {
+					String providePrefix = prefix + j++ + ".";
+					metadata.setProperty(providePrefix + "path", provide
+							.getPath().toString());
+					metadata.setProperty(providePrefix + "id", provide.getId());
+					metadata.setProperty(providePrefix + "version",
+							provide.getVersion());
+					metadata.setProperty(providePrefix + "installedPath",
+							provide.getInstalledPath().toString());
+					metadata.setProperty(providePrefix + "properties",
+							String.join(",", provide.getProperties().keySet()));
+					for (Entry<String, String> property : provide
+							.getProperties().entrySet())
+						metadata.setProperty(providePrefix + "property."
+								+ property.getKey(), property.getValue());
+				}
+
+				if (request.getBuildRoot() != null) {
+					Path source = request.getBuildRoot().resolve(
+							dropin.getPath());
+					if (Files.isDirectory(source))
+						copyTree(source,
+								temp.resolve(ROOT).resolve(dropin.getPath()));
+				}
+			}
+
+			try (OutputStream stream = Files.newOutputStream(temp
+					.resolve(METADATA))) {
+				metadata.store(stream, null);
+			}
+			Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+			logger.debug("Stored installation result in {}", entry);
+			CacheDirectory.evict(entry.getParent(), MAX_ENTRIES);
+		} catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+			// Stored concurrently by another run
+		} catch (IOException e) {
+			logger.warn("Unable to store installation result in {}", entry, e);
+		} finally {
+			if (temp != null && Files.exists(temp)) {
+				try {
+					CacheDirectory.delete(temp);
+				} catch (IOException e) {
+					logger.debug("Unable to remove {}", temp, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Recursively copy directory, preserving symbolic links.
+	 */
+	private static void copyTree(Path source, Path target) throws IOException {
+		Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir,
+					BasicFileAttributes attrs) throws IOException {
+				Files.createDirectories(target.resolve(source.relativize(dir)
+						.toString()));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file,
+					BasicFileAttributes attrs) throws IOException {
+				Files.copy(file, target.resolve(source.relativize(file)
+						.toString()), LinkOption.NOFOLLOW_LINKS,
+						StandardCopyOption.COPY_ATTRIBUTES,
+						StandardCopyOption.REPLACE_EXISTING);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.fedoraproject.p2.EclipseSystemLayout;
+import org.fedoraproject.p2.IFedoraBundleRepository;
+import org.fedoraproject.p2.P2Utils;
+import org.fedoraproject.p2.SCL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * System bundle indices kept in memory across installations. Before an index
+ * is reused, a stamp of SCL configuration files and modification times of
+ * all directories that are indexed is compared with the one taken when the
+ * index was built. Installing, removing or replacing a bundle changes the
+ * modification time of its directory, so the system is re-indexed whenever
+ * it changes, without re-reading any bundle otherwise.
+ * <p>
+ * Indices may be looked up concurrently.
+ */
+class SystemIndexCache {
+	private static final Logger logger = LoggerFactory
+			.getLogger(SystemIndexCache.class);
+
+	private static class Entry {
+		final String stamp;
+
+		final IFedoraBundleRepository index;
+
+		Entry(String stamp, IFedoraBundleRepository index) {
+			this.stamp = stamp;
+			this.index = index;
+		}
+	}
+
+	private final Map<List<Path>, Entry> entries = new HashMap<>();
+
+	/**
+	 * @param stamp
+	 *            current stamp of system bundle locations, as taken by
+	 *            {@link #stamp}
+	 * @return up to date index of system bundles for given SCL configuration
+	 *         files
+	 */
+	public IFedoraBundleRepository get(List<Path> sclConfs, String stamp) {
+		synchronized (this) {
+			Entry entry = entries.get(sclConfs);
+			if (entry != null && entry.stamp.equals(stamp)) {
+				logger.debug("Reusing system bundle index");
+				return entry.index;
+			}
+
+			if (entry != null)
+				logger.info("System bundles have changed, re-indexing");
+			entry = new Entry(stamp, InstallationSession.createIndex(sclConfs));
+			entries.put(sclConfs, entry);
+			return entry.index;
+		}
+	}
+
+	/**
+	 * @return digest of given SCL configuration files and modification times
+	 *         of all directories indexed for them
+	 */
+	static String stamp(List<Path> sclConfs) {
+		Set<String> lines = new TreeSet<>();
+		try {
+			for (Path conf : sclConfs) {
+				lines.add("scl " + conf + " "
+						+ (Files.exists(conf) ? P2Utils.digest(conf) : "none"));
+				Set<Path> locations = new LinkedHashSet<>();
+				EclipseSystemLayout.initLocations(new SCL(conf), locations,
+						locations, locations, false);
+				for (Path location : locations)
+					if (Files.isDirectory(location))
+						addDirectories(location, lines);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return P2Utils.digest(String.join("\n", lines));
+	}
+
+	private static void addDirectories(Path root, Set<String> lines)
+			throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir,
+					BasicFileAttributes attrs) {
+				lines.add("dir " + dir + " " + attrs.lastModifiedTime());
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				lines.add("unreadable " + file);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Merging of a strongly connected component of metapackages.
+ */
+@Name("org.fedoraproject.p2.ComponentMerge")
+@Label("Component Merge")
+@Description("Merging of strongly connected component of metapackages")
+@Category(Events.CATEGORY)
+public class ComponentMergeEvent extends jdk.jfr.Event {
+	@Label("Metapackages")
+	int metapackages;
+
+	@Label("Packages")
+	@Description("Physical packages involved in a cycle")
+	String packages;
+
+	public void commit(int count, Iterable<String> names) {
+		end();
+		if (shouldCommit()) {
+			metapackages = count;
+			packages = String.join(",", names);
+			commit();
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A step of putting units into a repository or dropin, such as publishing or
+ * materializing.
+ */
+@Name("org.fedoraproject.p2.DropinStep")
+@Label("Dropin Step")
+@Description("Publishing or materializing units in repository or dropin")
+@Category(Events.CATEGORY)
+public class DropinStepEvent extends jdk.jfr.Event {
+	@Label("Step")
+	String step;
+
+	@Label("Location")
+	String location;
+
+	@Label("Units")
+	@Description("Number of units or artifacts processed")
+	int units;
+
+	public void commit(String stepName, Object destination, int count) {
+		end();
+		if (shouldCommit()) {
+			step = stepName;
+			location = String.valueOf(destination);
+			units = count;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.jfr;
+
+/**
+ * Flight Recorder support. Custom events are recorded only when
+ * {@code jdk.jfr} is available and a recording with them enabled is running;
+ * otherwise emitting them costs next to nothing.
+ * <p>
+ * Event classes must not be loaded unless {@link #AVAILABLE} is true, so
+ * call sites look like this:
+ * 
+ * <pre>
+ * ManifestParseEvent event = Events.AVAILABLE ? new ManifestParseEvent() : null;
+ * if (event != null)
+ * 	event.begin();
+ * ...
+ * if (event != null)
+ * 	event.commit(file);
+ * </pre>
+ */
+public final class Events {
+	/**
+	 * Whether Flight Recorder API can be used
+	 */
+	public static final boolean AVAILABLE = isAvailable();
+
+	static final String CATEGORY = "Fedora P2";
+
+	private Events() {
+	}
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, Events.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.jfr;
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Reading of a bundle manifest while indexing system bundles.
+ */
+@Name("org.fedoraproject.p2.ManifestParse")
+@Label("Manifest Parse")
+@Description("Reading of bundle manifest while indexing system bundles")
+@Category(Events.CATEGORY)
+public class ManifestParseEvent extends jdk.jfr.Event {
+	@Label("Path")
+	String path;
+
+	@Label("Size")
+	@Description("Size of the bundle jar or manifest file")
+	@DataAmount
+	long bytes;
+
+	public void commit(File file) {
+		end();
+		if (shouldCommit()) {
+			path = file.getPath();
+			bytes = file.length();
+			commit();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Resolution of a single requirement of an installable unit.
+ */
+@Name("org.fedoraproject.p2.RequirementResolution")
+@Label("Requirement Resolution")
+@Description("Resolution of requirement of installable unit")
+@Category(Events.CATEGORY)
+public class RequirementResolutionEvent extends jdk.jfr.Event {
+	@Label("Unit")
+	String unit;
+
+	@Label("Requirement")
+	String requirement;
+
+	@Label("Tier")
+	@Description("Where providers were found, or null if nowhere")
+	String tier;
+
+	@Label("Providers")
+	@Description("Number of providers found to choose from, not the number of candidates scanned")
+	int providers;
+
+	@Label("Memoized")
+	@Description("Whether providers were already known from another unit with the same requirement")
+	boolean memoized;
+
+	public void commit(Object iu, Object req, Object source,
+			int providerCount, boolean wasMemoized) {
+		end();
+		if (shouldCommit()) {
+			unit = String.valueOf(iu);
+			requirement = String.valueOf(req);
+			tier = source == null ? null : source.toString();
+			providers = providerCount;
+			memoized = wasMemoized;
+			commit();
+		}
+	}
+}
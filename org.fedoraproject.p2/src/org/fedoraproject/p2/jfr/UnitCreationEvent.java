@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.jfr;
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Creation of installable units for system bundles or features.
+ */
+@Name("org.fedoraproject.p2.UnitCreation")
+@Label("Unit Creation")
+@Description("Creation of installable units for system bundles or features")
+@Category(Events.CATEGORY)
+public class UnitCreationEvent extends jdk.jfr.Event {
+	@Label("Path")
+	@Description("Bundle, or repository for features")
+	String path;
+
+	@Label("Units")
+	int units;
+
+	public void commit(File file, int count) {
+		end();
+		if (shouldCommit()) {
+			path = file.getPath();
+			units = count;
+			commit();
+		}
+	}
+}
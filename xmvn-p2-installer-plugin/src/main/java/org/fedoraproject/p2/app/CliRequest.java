@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Red Hat Inc.
+ * Copyright (c) 2014, 2026 Red Hat Inc.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,10 +10,20 @@
  *******************************************************************************/
 package org.fedoraproject.p2.app;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 import com.beust.jcommander.ParameterException;
 import com.beust.jcommander.JCommander;
@@ -45,18 +55,49 @@ class CliRequest {
 	@Parameter(names = { "-p", "--print-deps" }, description = "Print resolved dependencies in machine-readable form")
 	private boolean printDeps = false;
 
-	@Parameter(names = { "-n", "--name" }, required = true, description = "Name of main dropin")
+	@Parameter(names = { "-n", "--name" }, description = "Name of main dropin")
 	private String name;
 
 	@Parameter(names = { "-R", "--install-root" }, description = "Root directory for installation")
 	private String root;
 
+	@Parameter(names = { "-c", "--cache-dir" }, description = "Directory for caching data across runs")
+	private String cacheDir;
+
+	@Parameter(names = { "-j", "--parallel" }, description = "Resolve dependencies on all available processors")
+	private boolean parallel = false;
+
+	@Parameter(names = "--cache-results", description = "Reuse results of identical previous installations (requires --cache-dir)")
+	private boolean cacheResults = false;
+
+	@Parameter(names = "--report", description = "Write timing and allocation report of installation phases to given file in JSON format")
+	private String reportFile;
+
+	@Parameter(names = "--batch", description = "Perform installations listed in given file (- for standard input), one per line, each given with the same options as a single installation")
+	private String batchFile;
+
+	@Parameter(names = "--socket", description = "Perform installation in installer daemon listening on given UNIX domain socket, or in-process if no daemon is running")
+	private String socket;
+
+	@Parameter(names = "--daemon", description = "Run installer daemon listening on socket given by --socket, accessible only to current user. Requires Java 16 or later. Log messages of installations are written to standard error of the daemon")
+	private boolean daemon = false;
+
 	@DynamicParameter(names = "-M", description = "Assign installable unit to dropin")
 	private Map<String, String> mappings = new TreeMap<>();
 
 	@DynamicParameter(names = "-D", description = "Define system property")
 	private Map<String, String> defines = new TreeMap<>();
 
+	private final List<CliRequest> jobs = new ArrayList<>();
+
+	/**
+	 * Directory against which relative paths are resolved
+	 */
+	private Path workDir = Paths.get("");
+
+	private CliRequest() {
+	}
+
 	public CliRequest(String[] args) {
 		try {
 			JCommander jcomm = new JCommander(this);
@@ -78,9 +119,12 @@ class CliRequest {
 				System.setProperty("org.slf4j.simpleLogger.defaultLogLevel",
 						debug ? "trace" : "error");
 
-			if (root != null == dryRun)
-				throw new ParameterException(
-						"Exactly one of --install-root and --dry-run must be given");
+			if (daemon) {
+				if (socket == null)
+					throw new ParameterException("--daemon requires --socket");
+			} else {
+				validateRequest();
+			}
 
 			for (String param : defines.keySet())
 				System.setProperty(param, defines.get(param));
@@ -90,6 +134,185 @@ class CliRequest {
 		}
 	}
 
+	/**
+	 * Parse request received by installer daemon. Unlike command line, such
+	 * request can't affect state of the whole JVM.
+	 *
+	 * @param workDir
+	 *            working directory of the client
+	 * @throws ParameterException
+	 *             if request is invalid
+	 */
+	static CliRequest parseDaemonRequest(String[] args, Path workDir) {
+		CliRequest request = new CliRequest();
+		request.workDir = workDir;
+		new JCommander(request).parse(args);
+		if (!request.isForwardable() || request.help || request.daemon)
+			throw new ParameterException(
+					"Request not supported by installer daemon");
+		request.validateRequest();
+		return request;
+	}
+
+	private void validateRequest() {
+		if (batchFile != null) {
+			if (root != null && dryRun)
+				throw new ParameterException(
+						"At most one of --install-root and --dry-run must be given");
+			if (name != null || !parameters.isEmpty())
+				throw new ParameterException(
+						"--name and artifacts must be given in batch file");
+			// Jobs would overwrite each other's report
+			if (reportFile != null)
+				throw new ParameterException(
+						"--report must be given in batch file");
+			readJobs();
+		} else {
+			validate();
+		}
+	}
+
+	private void validate() {
+		if (name == null)
+			throw new ParameterException("--name must be given");
+
+		if (root != null == dryRun)
+			throw new ParameterException(
+					"Exactly one of --install-root and --dry-run must be given");
+
+		if (cacheResults && cacheDir == null)
+			throw new ParameterException("--cache-results requires --cache-dir");
+	}
+
+	/**
+	 * Read installation jobs from batch file. Empty lines and lines starting
+	 * with {@code #} are skipped. Arguments are split as described in
+	 * {@link #splitLine}. Options given on command line apply to all jobs,
+	 * unless overridden by the job.
+	 */
+	private void readJobs() {
+		List<String> lines;
+		try {
+			if (batchFile.equals("-"))
+				lines = new BufferedReader(new InputStreamReader(System.in,
+						StandardCharsets.UTF_8)).lines().collect(
+						Collectors.toList());
+			else
+				lines = Files.readAllLines(resolve(batchFile));
+		} catch (IOException | UncheckedIOException e) {
+			throw new ParameterException("Unable to read batch file "
+					+ batchFile + ": " + e.getMessage());
+		}
+
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i).trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+
+			CliRequest job = new CliRequest();
+			job.workDir = workDir;
+			try {
+				new JCommander(job).parse(splitLine(line).toArray(new String[0]));
+				if (job.help || job.debug || job.quiet
+						|| job.batchFile != null || !job.defines.isEmpty())
+					throw new ParameterException(
+							"Only options of a single installation are allowed");
+				if (!job.mappings.isEmpty())
+					throw new ParameterException(
+							"-M is not supported by the installer");
+				job.strict |= strict;
+				job.printDeps |= printDeps;
+				job.parallel |= parallel;
+				job.cacheResults |= cacheResults;
+				if (job.cacheDir == null)
+					job.cacheDir = cacheDir;
+				if (job.root == null && !job.dryRun) {
+					job.root = root;
+					job.dryRun = dryRun;
+				}
+				job.validate();
+			} catch (ParameterException e) {
+				throw new ParameterException(batchFile + ":" + (i + 1) + ": "
+						+ e.getMessage());
+			}
+			jobs.add(job);
+		}
+	}
+
+	/**
+	 * Split line of batch file into arguments. Arguments are separated by
+	 * whitespace, which can be made part of an argument by enclosing it in
+	 * single or double quotes, or by escaping it with a backslash outside of
+	 * single quotes.
+	 *
+	 * @throws ParameterException
+	 *             if a quote is not terminated
+	 */
+	static List<String> splitLine(String line) {
+		List<String> args = new ArrayList<>();
+		StringBuilder arg = null;
+		char quote = 0;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quote == 0 && Character.isWhitespace(c)) {
+				if (arg != null)
+					args.add(arg.toString());
+				arg = null;
+				continue;
+			}
+			if (arg == null)
+				arg = new StringBuilder();
+			if (quote != 0 && c == quote)
+				quote = 0;
+			else if (quote == 0 && (c == '\'' || c == '"'))
+				quote = c;
+			else if (c == '\\' && quote != '\'' && i + 1 < line.length())
+				arg.append(line.charAt(++i));
+			else
+				arg.append(c);
+		}
+		if (quote != 0)
+			throw new ParameterException("Unterminated quote");
+		if (arg != null)
+			args.add(arg.toString());
+		return args;
+	}
+
+	/**
+	 * @return path resolved against working directory of the client
+	 */
+	public Path resolve(String path) {
+		return workDir.resolve(path);
+	}
+
+	public String getSocket() {
+		return socket;
+	}
+
+	public boolean isDaemon() {
+		return daemon;
+	}
+
+	/**
+	 * @return whether request can be performed by installer daemon, that is
+	 *         it doesn't change log level, define system properties nor read
+	 *         standard input
+	 */
+	public boolean isForwardable() {
+		return !debug && !quiet && defines.isEmpty() && !"-".equals(batchFile);
+	}
+
+	public boolean isBatch() {
+		return batchFile != null;
+	}
+
+	/**
+	 * @return installation jobs read from batch file
+	 */
+	public List<CliRequest> getJobs() {
+		return jobs;
+	}
+
 	public List<String> getParameters() {
 		return parameters;
 	}
@@ -114,6 +337,22 @@ class CliRequest {
 		return root;
 	}
 
+	public String getCacheDir() {
+		return cacheDir;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	public boolean isCacheResults() {
+		return cacheResults;
+	}
+
+	public String getReportFile() {
+		return reportFile;
+	}
+
 	public Map<String, String> getMappings() {
 		return mappings;
 	}
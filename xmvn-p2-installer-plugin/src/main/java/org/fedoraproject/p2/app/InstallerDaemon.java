@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.fedoraproject.p2.installer.EclipseInstaller;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.beust.jcommander.ParameterException;
+
+/**
+ * Long-running installer process, accepting requests over a local UNIX
+ * domain socket. The OSGi framework and the installer service are started
+ * only once, and system bundle indices are kept in memory until system
+ * bundles change, so that each request pays only for the installation
+ * itself.
+ * <p>
+ * Request consists of working directory of the client followed by number of
+ * command line arguments and the arguments themselves, all written with
+ * {@link DataOutputStream}. Response consists of exit status followed by
+ * length and contents of standard output and standard error of the
+ * installation.
+ * <p>
+ * The socket is accessible only to the user running the daemon, and requests
+ * from processes of other users are rejected. At most
+ * {@link #MAX_CONCURRENT_REQUESTS} requests are performed at the same time,
+ * further requests wait for their turn.
+ * <p>
+ * Log messages of installations are not captured per request. They are
+ * written to standard error of the daemon, so clients do not receive
+ * warnings logged by the installer, only output of the installer application
+ * itself.
+ */
+class InstallerDaemon {
+	private static final int MAX_CONCURRENT_REQUESTS = Runtime.getRuntime()
+			.availableProcessors();
+
+	private final Logger logger = LoggerFactory.getLogger(InstallerDaemon.class);
+
+	private final Path socket;
+
+	private final EclipseInstaller installer;
+
+	/**
+	 * @param installer
+	 *            installer used for all requests, preferably a caching one
+	 */
+	public InstallerDaemon(Path socket, EclipseInstaller installer) {
+		this.socket = socket;
+		this.installer = installer;
+	}
+
+	/**
+	 * Serve requests until the process is terminated. Requests are performed
+	 * concurrently.
+	 */
+	public void serve() throws IOException {
+		if (!UnixSockets.isSupported())
+			throw new IOException("Installer daemon requires Java 16 or later");
+		if (Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) {
+			if (isListening(socket))
+				throw new IOException("Installer daemon is already listening on "
+						+ socket);
+			// Left behind by daemon that was killed
+			Files.delete(socket);
+		}
+
+		try (ServerSocketChannel server = bindPrivate()) {
+			UserPrincipal owner = Files.getOwner(socket, LinkOption.NOFOLLOW_LINKS);
+			Object socketKey = getFileKey(socket);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					// Don't remove socket of another daemon
+					if (socketKey != null && socketKey.equals(getFileKey(socket)))
+						Files.deleteIfExists(socket);
+				} catch (IOException e) {
+					// Removed on next start
+				}
+			}));
+			logger.info("Installer daemon listening on {}", socket);
+
+			ExecutorService executor = Executors
+					.newFixedThreadPool(MAX_CONCURRENT_REQUESTS);
+			while (true) {
+				SocketChannel client = server.accept();
+				if (isPermitted(client, owner)) {
+					executor.execute(() -> handle(client));
+				} else {
+					client.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Bind socket in a new directory accessible only to current user, restrict
+	 * permissions of the socket and only then link it to its location. This
+	 * way the socket is never exposed with permissions given by umask. Unlike
+	 * rename, link fails if the location exists, so a daemon started at the
+	 * same time can't take over the socket.
+	 */
+	private ServerSocketChannel bindPrivate() throws IOException {
+		Path parent = socket.toAbsolutePath().getParent();
+		Path privateDir = Files.createTempDirectory(parent, ".xmvn-p2-",
+				PosixFilePermissions.asFileAttribute(PosixFilePermissions
+						.fromString("rwx------")));
+		Path privateSocket = privateDir.resolve("socket");
+		try {
+			ServerSocketChannel server = UnixSockets.bind(privateSocket);
+			try {
+				Files.setPosixFilePermissions(privateSocket,
+						PosixFilePermissions.fromString("rw-------"));
+				Files.createLink(socket, privateSocket);
+			} catch (FileAlreadyExistsException e) {
+				server.close();
+				throw new IOException("Installer daemon is already listening on "
+						+ socket, e);
+			} catch (IOException | RuntimeException e) {
+				server.close();
+				throw e;
+			}
+			return server;
+		} finally {
+			Files.deleteIfExists(privateSocket);
+			Files.delete(privateDir);
+		}
+	}
+
+	private boolean isPermitted(SocketChannel client, UserPrincipal owner) {
+		try {
+			UserPrincipal peer = UnixSockets.getPeerUser(client);
+			if (peer.equals(owner))
+				return true;
+			logger.warn("Rejecting installer request from user {}",
+					peer.getName());
+		} catch (IOException e) {
+			logger.warn("Rejecting installer request from unknown user", e);
+		}
+		return false;
+	}
+
+	private void handle(SocketChannel channel) {
+		try (SocketChannel client = channel;
+				DataInputStream request = new DataInputStream(
+						new BufferedInputStream(Channels.newInputStream(client)));
+				DataOutputStream response = new DataOutputStream(
+						new BufferedOutputStream(Channels.newOutputStream(client)))) {
+			Path workDir = Paths.get(request.readUTF());
+			int argc = request.readInt();
+			if (argc < 0)
+				throw new IOException("Malformed request");
+			String[] args = new String[argc];
+			for (int i = 0; i < argc; i++)
+				args[i] = request.readUTF();
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ByteArrayOutputStream err = new ByteArrayOutputStream();
+			int status = execute(args, workDir, new PrintStream(out, true,
+					StandardCharsets.UTF_8), new PrintStream(err, true,
+					StandardCharsets.UTF_8));
+
+			response.writeInt(status);
+			response.writeInt(out.size());
+			out.writeTo(response);
+			response.writeInt(err.size());
+			err.writeTo(response);
+		} catch (IOException e) {
+			logger.warn("Unable to serve installer request", e);
+		}
+	}
+
+	private int execute(String[] args, Path workDir, PrintStream out,
+			PrintStream err) {
+		try {
+			CliRequest cliRequest = CliRequest.parseDaemonRequest(args, workDir);
+			return new P2InstallerApp(out, err).run(cliRequest, installer);
+		} catch (ParameterException e) {
+			err.println(e.getMessage() + ". Specify -h for usage.");
+			return 1;
+		} catch (Exception e) {
+			err.println("Exception during installation");
+			e.printStackTrace(err);
+			return 2;
+		}
+	}
+
+	private static Object getFileKey(Path path) throws IOException {
+		return Files.readAttributes(path, BasicFileAttributes.class,
+				LinkOption.NOFOLLOW_LINKS).fileKey();
+	}
+
+	private static boolean isListening(Path socket) {
+		try (SocketChannel ignored = UnixSockets.connect(socket)) {
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Perform installation in installer daemon, copying its output to
+	 * standard output and standard error of this process.
+	 *
+	 * @return exit status of installation, or {@code null} if no daemon is
+	 *         listening on given socket or UNIX domain sockets are not
+	 *         supported by running JVM
+	 */
+	public static Integer forward(Path socket, String[] args)
+			throws IOException {
+		if (!UnixSockets.isSupported())
+			return null;
+		SocketChannel channel;
+		try {
+			channel = UnixSockets.connect(socket);
+		} catch (IOException e) {
+			return null;
+		}
+
+		try (channel;
+				DataOutputStream request = new DataOutputStream(
+						new BufferedOutputStream(Channels.newOutputStream(channel)));
+				DataInputStream response = new DataInputStream(
+						new BufferedInputStream(Channels.newInputStream(channel)))) {
+			request.writeUTF(Paths.get("").toAbsolutePath().toString());
+			request.writeInt(args.length);
+			for (String arg : args)
+				request.writeUTF(arg);
+			request.flush();
+
+			int status = response.readInt();
+			System.out.write(readBytes(response));
+			System.out.flush();
+			System.err.write(readBytes(response));
+			System.err.flush();
+			return status;
+		}
+	}
+
+	private static byte[] readBytes(DataInputStream stream) throws IOException {
+		byte[] bytes = new byte[stream.readInt()];
+		stream.readFully(bytes);
+		return bytes;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014-2017 Red Hat Inc.
+ * Copyright (c) 2014-2017, 2026 Red Hat Inc.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,11 +10,15 @@
  *******************************************************************************/
 package org.fedoraproject.p2.app;
 
+import java.io.PrintStream;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import org.fedoraproject.p2.installer.Dropin;
 import org.fedoraproject.p2.installer.EclipseArtifact;
+import org.fedoraproject.p2.installer.EclipseInstallationOutcome;
 import org.fedoraproject.p2.installer.EclipseInstallationRequest;
 import org.fedoraproject.p2.installer.EclipseInstallationResult;
 import org.fedoraproject.p2.installer.EclipseInstaller;
@@ -25,21 +29,36 @@ import org.fedoraproject.p2.installer.EclipseInstallerFactory;
  */
 public class P2InstallerApp {
 
-	private int run(CliRequest cliRequest, EclipseInstaller installer) throws Exception {
+	private final PrintStream out;
+
+	private final PrintStream err;
+
+	public P2InstallerApp() {
+		this(System.out, System.err);
+	}
+
+	/**
+	 * @param out
+	 *            stream for printing results, such as dependencies
+	 * @param err
+	 *            stream for printing diagnostic messages
+	 */
+	P2InstallerApp(PrintStream out, PrintStream err) {
+		this.out = out;
+		this.err = err;
+	}
+
+	int run(CliRequest cliRequest, EclipseInstaller installer) throws Exception {
+		if (cliRequest.isBatch())
+			return runBatch(cliRequest, installer);
+
 		if (cliRequest.getParameters().isEmpty()) {
-			System.err.println("No artifacts specified for installation."
+			err.println("No artifacts specified for installation."
 					+ " There is nothing to do.");
 			return 0;
 		}
 
-		EclipseInstallationRequest request = new EclipseInstallationRequest();
-		request.setMainPackageId(cliRequest.getName());
-		if (!cliRequest.isDryRun())
-			request.setBuildRoot(Paths.get(cliRequest.getRoot()));
-		for (String arg : cliRequest.getParameters())
-			request.addArtifact(new EclipseArtifact(Paths.get(arg), false, false));
-		if (!cliRequest.getMappings().isEmpty())
-			throw new RuntimeException("FIXME: for now subpackage mapping is disabled in P2InstallerApp");
+		EclipseInstallationRequest request = createRequest(cliRequest);
 
 		EclipseInstallationResult result = installer
 				.performInstallation(request);
@@ -50,19 +69,86 @@ public class P2InstallerApp {
 		if (cliRequest.isStrict()
 				&& result.getDropins().size() != cliRequest.getParameters()
 						.size()) {
-			System.err.println("Some artifact failed to install");
+			err.println("Some artifact failed to install");
 			return 1;
 		}
 
 		return 0;
 	}
 
+	/**
+	 * Perform all installations from batch file in a single run, sharing
+	 * system bundle index among them. Failure of one installation doesn't
+	 * prevent the following ones from being performed.
+	 */
+	private int runBatch(CliRequest cliRequest, EclipseInstaller installer) {
+		List<CliRequest> jobs = new ArrayList<>();
+		List<EclipseInstallationRequest> requests = new ArrayList<>();
+		for (CliRequest job : cliRequest.getJobs()) {
+			if (job.getParameters().isEmpty()) {
+				err.println("No artifacts specified for installation of "
+						+ job.getName() + ". There is nothing to do.");
+				continue;
+			}
+			jobs.add(job);
+			requests.add(createRequest(job));
+		}
+
+		List<EclipseInstallationOutcome> outcomes = installer
+				.performInstallations(requests);
+
+		int status = 0;
+		for (int i = 0; i < outcomes.size(); i++) {
+			CliRequest job = jobs.get(i);
+			EclipseInstallationOutcome outcome = outcomes.get(i);
+			if (!outcome.isSuccessful()) {
+				err.println("Installation of " + job.getName()
+						+ " failed: " + outcome.getFailure());
+				status = 2;
+				continue;
+			}
+
+			EclipseInstallationResult result = outcome.getResult();
+			if (job.isPrintDeps()) {
+				out.println("# " + job.getName());
+				printDeps(result.getDropins());
+			}
+
+			if (job.isStrict()
+					&& result.getDropins().size() != job.getParameters().size()) {
+				err.println("Some artifact of " + job.getName()
+						+ " failed to install");
+				status = Math.max(status, 1);
+			}
+		}
+
+		return status;
+	}
+
+	private EclipseInstallationRequest createRequest(CliRequest cliRequest) {
+		EclipseInstallationRequest request = new EclipseInstallationRequest();
+		request.setMainPackageId(cliRequest.getName());
+		if (!cliRequest.isDryRun())
+			request.setBuildRoot(cliRequest.resolve(cliRequest.getRoot()));
+		if (cliRequest.getCacheDir() != null)
+			request.setCacheDir(cliRequest.resolve(cliRequest.getCacheDir()));
+		request.setParallelResolution(cliRequest.isParallel());
+		request.setCacheResults(cliRequest.isCacheResults());
+		if (cliRequest.getReportFile() != null)
+			request.setReportFile(cliRequest.resolve(cliRequest.getReportFile()));
+		for (String arg : cliRequest.getParameters())
+			request.addArtifact(new EclipseArtifact(cliRequest.resolve(arg), false, false));
+		if (!cliRequest.getMappings().isEmpty())
+			throw new RuntimeException("FIXME: for now subpackage mapping is disabled in P2InstallerApp");
+		return request;
+	}
+
 	private void printDeps(Set<Dropin> dropins) {
 		for (Dropin dropin : dropins) {
 			for (EclipseArtifact provide : dropin.getOsgiProvides()) {
 				String idVer = provide.getId() + " " + provide.getVersion();
 				String req = provide.getProperties().get("osgi.requires");
-				System.out.println(req == null ? idVer : idVer + " " + req);
+				out.println(req == null ? idVer : idVer + " " + req);
 			}
 		}
 	}
@@ -70,6 +156,19 @@ public class P2InstallerApp {
 	public static void main(String[] args) {
 		try {
 			CliRequest cliRequest = new CliRequest(args);
+			if (cliRequest.isDaemon()) {
+				EclipseInstaller installer = new EclipseInstallerFactory()
+						.createEmbeddedInstaller().createCachingInstaller();
+				new InstallerDaemon(Paths.get(cliRequest.getSocket()),
+						installer).serve();
+				System.exit(0);
+			}
+			if (cliRequest.getSocket() != null && cliRequest.isForwardable()) {
+				Integer status = InstallerDaemon.forward(
+						Paths.get(cliRequest.getSocket()), args);
+				if (status != null)
+					System.exit(status);
+			}
 			EclipseInstaller installer = new EclipseInstallerFactory()
 					.createEmbeddedInstaller();
 			System.exit(new P2InstallerApp().run(cliRequest, installer));
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.app;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.attribute.UserPrincipal;
+
+/**
+ * Access to UNIX domain sockets, which are available only since Java 16. The
+ * installer is built for Java 11, so the API is looked up reflectively.
+ */
+class UnixSockets {
+	private static final ProtocolFamily UNIX;
+
+	private static final Method ADDRESS_OF;
+
+	private static final Method SERVER_OPEN;
+
+	private static final Method CLIENT_OPEN;
+
+	private static final SocketOption<?> PEER_CREDENTIALS;
+
+	private static final Method PRINCIPAL_USER;
+
+	static {
+		ProtocolFamily unix = null;
+		Method addressOf = null;
+		Method serverOpen = null;
+		Method clientOpen = null;
+		try {
+			unix = StandardProtocolFamily.valueOf("UNIX");
+			addressOf = Class.forName("java.net.UnixDomainSocketAddress")
+					.getMethod("of", Path.class);
+			serverOpen = ServerSocketChannel.class.getMethod("open",
+					ProtocolFamily.class);
+			clientOpen = SocketChannel.class.getMethod("open",
+					ProtocolFamily.class);
+		} catch (IllegalArgumentException | ReflectiveOperationException e) {
+			unix = null;
+		}
+		UNIX = unix;
+		ADDRESS_OF = addressOf;
+		SERVER_OPEN = serverOpen;
+		CLIENT_OPEN = clientOpen;
+
+		SocketOption<?> peerCredentials = null;
+		Method principalUser = null;
+		try {
+			peerCredentials = (SocketOption<?>) Class
+					.forName("jdk.net.ExtendedSocketOptions")
+					.getField("SO_PEERCRED").get(null);
+			principalUser = Class.forName("jdk.net.UnixDomainPrincipal")
+					.getMethod("user");
+		} catch (ReflectiveOperationException | LinkageError e) {
+			peerCredentials = null;
+		}
+		PEER_CREDENTIALS = peerCredentials;
+		PRINCIPAL_USER = principalUser;
+	}
+
+	private UnixSockets() {
+	}
+
+	/**
+	 * @return whether UNIX domain sockets are supported by running JVM
+	 */
+	public static boolean isSupported() {
+		return UNIX != null;
+	}
+
+	/**
+	 * Open server channel bound to given socket file.
+	 */
+	public static ServerSocketChannel bind(Path socket) throws IOException {
+		ServerSocketChannel server = (ServerSocketChannel) invoke(
+				SERVER_OPEN, null, UNIX);
+		try {
+			server.bind(getAddress(socket));
+		} catch (IOException | RuntimeException e) {
+			server.close();
+			throw e;
+		}
+		return server;
+	}
+
+	/**
+	 * Open channel connected to given socket file.
+	 */
+	public static SocketChannel connect(Path socket) throws IOException {
+		SocketChannel channel = (SocketChannel) invoke(CLIENT_OPEN, null, UNIX);
+		try {
+			channel.connect(getAddress(socket));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		return channel;
+	}
+
+	/**
+	 * Get user owning the process at the other end of given channel.
+	 *
+	 * @throws IOException
+	 *             if peer credentials are not available on this platform
+	 */
+	public static UserPrincipal getPeerUser(SocketChannel channel)
+			throws IOException {
+		if (PEER_CREDENTIALS == null)
+			throw new IOException("Peer credentials are not available");
+		try {
+			Object principal = channel.getOption(PEER_CREDENTIALS);
+			return (UserPrincipal) invoke(PRINCIPAL_USER, principal);
+		} catch (UnsupportedOperationException e) {
+			throw new IOException("Peer credentials are not available", e);
+		}
+	}
+
+	private static SocketAddress getAddress(Path socket) throws IOException {
+		return (SocketAddress) invoke(ADDRESS_OF, null, socket);
+	}
+
+	private static Object invoke(Method method, Object target, Object... args)
+			throws IOException {
+		if (!isSupported())
+			throw new IOException(
+					"UNIX domain sockets require Java 16 or later");
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IOException(cause);
+		} catch (IllegalAccessException e) {
+			throw new IOException(e);
+		}
+	}
+}